@@ -3,33 +3,51 @@ package com.alcw.config;
 import brevo.ApiClient;
 import brevo.auth.ApiKeyAuth;
 import brevoApi.TransactionalEmailsApi;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 
 @Configuration // Marks this class as a source of bean definitions
+@EnableScheduling
 public class AppConfig {
 
     @Bean // Tells Spring to create a bean from the return value of this method
-    public RestTemplate restTemplate() {
-        // You can customize the RestTemplate here if needed (e.g., timeouts, message converters)
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        // Backed by the pooled client from HttpClientConfig (keep-alive, timeouts, pool metrics)
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
     }
 
     @Value("${brevo.api.key}")
     private String brevoApiKey;
 
+    @Value("${brevo.connect-timeout-ms:5000}")
+    private int brevoConnectTimeoutMillis;
+
+    @Value("${brevo.read-timeout-ms:15000}")
+    private int brevoReadTimeoutMillis;
+
+    // Not needed when an offline email sink replaces Brevo
     @Bean
+    @Profile("!email-memory & !email-file")
     public ApiClient brevoApiClient() {
         ApiClient apiClient = new ApiClient();
         // name 'api-key' is the auth name used by the generated SDK - adjust if yours differs
         ApiKeyAuth apiKeyAuth = (ApiKeyAuth) apiClient.getAuthentication("api-key");
         apiKeyAuth.setApiKey(brevoApiKey);
+        // bounded call time so a slow Brevo cannot hold outbox workers indefinitely
+        apiClient.setConnectTimeout(brevoConnectTimeoutMillis);
+        apiClient.setReadTimeout(brevoReadTimeoutMillis);
+        apiClient.setWriteTimeout(brevoReadTimeoutMillis);
         return apiClient;
     }
 
     @Bean
+    @Profile("!email-memory & !email-file")
     public TransactionalEmailsApi transactionalEmailsApi(ApiClient brevoApiClient) {
         return new TransactionalEmailsApi(brevoApiClient);
     }
@@ -18,13 +18,18 @@ public class CloudinaryConfig {
     @Value("${cloudinary.api-secret}")
     private String apiSecret;
 
+    // Upload timeout in seconds; bounds how long a request thread can wait on Cloudinary
+    @Value("${cloudinary.timeout-seconds:60}")
+    private int timeoutSeconds;
+
     @Bean
     public Cloudinary cloudinary() {
         return new Cloudinary(ObjectUtils.asMap(
                 "cloud_name", cloudName,
                 "api_key", apiKey,
                 "api_secret", apiSecret,
-                "secure", true
+                "secure", true,
+                "timeout", timeoutSeconds
         ));
     }
 }
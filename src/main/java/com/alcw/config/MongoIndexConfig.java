@@ -0,0 +1,69 @@
+package com.alcw.config;
+
+import com.alcw.model.EmailOutboxMessage;
+import com.alcw.model.FileHash;
+import com.alcw.model.IssuedUpload;
+import com.alcw.model.OTP;
+import com.alcw.model.PendingRegistration;
+import com.alcw.model.RefreshToken;
+import com.alcw.model.RevokedToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Creates the indexes declared with {@code @Indexed} (TTL and unique indexes) for the
+ * documents that rely on them. The MongoTemplate built in {@link MongoConfig} does not
+ * create indexes on its own. Most indexes only keep collections tidy and are ensured
+ * best-effort, but the OTP cooldown relies on the unique email index, so startup fails
+ * if that one cannot be created.
+ */
+@Configuration
+public class MongoIndexConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+    private static final List<Class<?>> INDEXED_DOCUMENTS = List.of(
+            RevokedToken.class,
+            RefreshToken.class,
+            PendingRegistration.class,
+            OTP.class,
+            EmailOutboxMessage.class,
+            IssuedUpload.class,
+            FileHash.class
+    );
+
+    private static final Set<Class<?>> REQUIRED_INDEXES = Set.of(OTP.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public MongoIndexConfig(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        MongoPersistentEntityIndexResolver resolver =
+                new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        for (Class<?> document : INDEXED_DOCUMENTS) {
+            try {
+                IndexOperations indexOps = mongoTemplate.indexOps(document);
+                resolver.resolveIndexFor(document).forEach(indexOps::ensureIndex);
+            } catch (Exception ex) {
+                if (REQUIRED_INDEXES.contains(document)) {
+                    throw new IllegalStateException("Could not ensure indexes for "
+                            + document.getSimpleName(), ex);
+                }
+                logger.warn("Could not ensure indexes for {}: {}", document.getSimpleName(), ex.getMessage());
+            }
+        }
+    }
+}
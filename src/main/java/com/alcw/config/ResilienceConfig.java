@@ -0,0 +1,27 @@
+package com.alcw.config;
+
+import brevo.ApiException;
+import com.alcw.util.ExternalCallGuard;
+import com.cloudinary.api.exceptions.NotFound;
+import io.github.resilience4j.common.circuitbreaker.configuration.CircuitBreakerConfigCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ResilienceConfig {
+
+    // Rejected payloads (4xx other than 429) are our fault, not a sign that Brevo is unhealthy
+    @Bean
+    public CircuitBreakerConfigCustomizer brevoCircuitBreakerCustomizer() {
+        return CircuitBreakerConfigCustomizer.of(ExternalCallGuard.BREVO, builder -> builder
+                .recordException(ex -> !(ex instanceof ApiException apiEx)
+                        || apiEx.getCode() == 0 || apiEx.getCode() == 429 || apiEx.getCode() >= 500));
+    }
+
+    // A bad upload reference is a client error, not a Cloudinary outage
+    @Bean
+    public CircuitBreakerConfigCustomizer cloudinaryCircuitBreakerCustomizer() {
+        return CircuitBreakerConfigCustomizer.of(ExternalCallGuard.CLOUDINARY, builder -> builder
+                .ignoreExceptions(NotFound.class));
+    }
+}
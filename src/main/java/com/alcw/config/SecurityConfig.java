@@ -2,14 +2,18 @@ package com.alcw.config;
 
 
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpMethod;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import com.alcw.service.UserDetailsServiceImpl;
+import com.alcw.util.BoundedPasswordEncoder;
 import com.alcw.util.JwtAuthenticationFilter;
 import com.alcw.util.JwtUtil;
+import com.alcw.util.TunableBCryptPasswordEncoder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -17,7 +21,6 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -30,6 +33,21 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SecurityConfig {
 
+    // permitAll paths; JwtAuthenticationFilter also skips token work for these
+    public static final String[] PUBLIC_PATHS = {
+            "/api/auth/**",
+            "/api/law/**",
+            "/api/contact/**",
+            "/api/uploads/contact/**",
+            "/actuator/**",
+            "/error",
+            "/healthz",
+            "/api/blogs/**",
+            "/api/admin/**",
+            "/v3/api-docs/**",
+            "/swagger-ui/**"
+    };
+
     private final JwtUtil jwtUtil;
     private final UserDetailsServiceImpl userDetailsService;
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
@@ -50,18 +68,7 @@ public class SecurityConfig {
 
                 // Configure authorization
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers(
-                                "/api/auth/**",
-                                "/api/law/**",
-                                "/api/contact/**",
-                                "/actuator/**",
-                                "/error",
-                                "/healthz",
-                                "/api/blogs/**",
-                                "/api/admin/**",
-                                "/v3/api-docs/**",
-                                "/swagger-ui/**"
-                        ).permitAll()
+                        .requestMatchers(PUBLIC_PATHS).permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/blogs").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.PUT, "/api/blogs/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/blogs/**").hasRole("ADMIN")
@@ -88,8 +95,15 @@ public class SecurityConfig {
 
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            MeterRegistry meterRegistry,
+            @Value("${security.bcrypt.strength:10}") int bcryptStrength,
+            @Value("${security.password-hashing.threads:2}") int threads,
+            @Value("${security.password-hashing.queue-capacity:32}") int queueCapacity,
+            @Value("${security.password-hashing.wait-timeout-ms:5000}") long waitTimeoutMillis) {
+        // BCrypt runs on its own bounded pool instead of Tomcat request threads
+        return new BoundedPasswordEncoder(new TunableBCryptPasswordEncoder(bcryptStrength),
+                threads, queueCapacity, waitTimeoutMillis, meterRegistry);
     }
 
     @Bean
@@ -2,6 +2,9 @@ package com.alcw.controller;
 
 import com.alcw.dto.AdminLoginRequest;
 import com.alcw.service.AdminAuthService;
+import com.alcw.service.LoginThrottleService;
+import com.alcw.service.RefreshTokenService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -12,14 +15,22 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/admin")
 public class AdminController {
     private final AdminAuthService adminAuthService;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginThrottleService loginThrottleService;
 
-    public AdminController(AdminAuthService adminAuthService) {
+    public AdminController(AdminAuthService adminAuthService, RefreshTokenService refreshTokenService,
+                           LoginThrottleService loginThrottleService) {
         this.adminAuthService = adminAuthService;
+        this.refreshTokenService = refreshTokenService;
+        this.loginThrottleService = loginThrottleService;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody AdminLoginRequest request) {
-        String token = adminAuthService.login(request);
-        return ResponseEntity.ok().body(java.util.Map.of("token", token));
+    public ResponseEntity<?> login(@RequestBody AdminLoginRequest request, HttpServletRequest httpRequest) {
+        String token = loginThrottleService.attempt(httpRequest.getRemoteAddr(),
+                LoginThrottleService.adminKey(request.getUsername()),
+                () -> adminAuthService.login(request));
+        String refreshToken = refreshTokenService.issue(request.getUsername());
+        return ResponseEntity.ok().body(java.util.Map.of("token", token, "refreshToken", refreshToken));
     }
 }
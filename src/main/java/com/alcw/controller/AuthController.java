@@ -5,9 +5,15 @@ import com.alcw.dto.*;
 import com.alcw.model.ResendOTPRequest;
 import com.alcw.model.User;
 import com.alcw.model.PasswordResetRequest;
+import com.alcw.service.LoginThrottleService;
 import com.alcw.service.PasswordResetService;
+import com.alcw.service.RefreshTokenService;
+import com.alcw.service.TokenRevocationService;
 import com.alcw.util.JwtUtil;
 import com.alcw.service.AuthService;
+import com.alcw.util.VerifiedTokenCache;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -22,6 +28,10 @@ public class AuthController {
     private final AuthService authService;
     private final JwtUtil jwtUtil;
     private final PasswordResetService passwordResetService;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
+    private final LoginThrottleService loginThrottleService;
 
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@Valid @RequestBody UserDTO userDTO) {
@@ -49,22 +59,29 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> loginUser(@Valid @RequestBody LoginRequest loginRequest) {
-        User user = authService.loginUser(loginRequest);
+    public ResponseEntity<?> loginUser(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest httpRequest) {
+        User user = loginThrottleService.attempt(httpRequest.getRemoteAddr(),
+                LoginThrottleService.emailKey(loginRequest.getEmail()),
+                () -> authService.loginUser(loginRequest));
         String token = jwtUtil.generateToken(user);
-        return ResponseEntity.ok(new AuthResponse(
+        AuthResponse response = new AuthResponse(
                 user.getId(),
                 user.getName(),
                 user.getEmail(),
                 user.getOccupation().toString(),
                 token,
                 user.getMembershipId()
-        ));
+        );
+        response.setRefreshToken(refreshTokenService.issue(user.getUsername()));
+        return ResponseEntity.ok(response);
     }
 
     @PostMapping("/login-with-patron-id")
-    public ResponseEntity<?> loginWithPatronId(@Valid @RequestBody PatronLoginRequest request) {
-        User user = authService.loginWithPatronId(request);
+    public ResponseEntity<?> loginWithPatronId(@Valid @RequestBody PatronLoginRequest request,
+                                               HttpServletRequest httpRequest) {
+        User user = loginThrottleService.attempt(httpRequest.getRemoteAddr(),
+                LoginThrottleService.patronKey(request.getPatronId()),
+                () -> authService.loginWithPatronId(request));
         String token = jwtUtil.generateToken(user);
         return ResponseEntity.ok(new AuthResponse(
                 user.getId(),
@@ -74,10 +91,17 @@ public class AuthController {
                 "Login successful",
                 token,
                 user.getMembershipId(),
-                user.getProfileImageUrl()
+                user.getProfileImageUrl(),
+                refreshTokenService.issue(user.getUsername())
         ));
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
+        // Single-use: the presented refresh token is consumed and replaced
+        return ResponseEntity.ok(refreshTokenService.rotate(request.getRefreshToken()));
+    }
+
     @PostMapping("/request-password-reset")
     public ResponseEntity<?> requestPasswordReset(@Valid @RequestBody PasswordResetRequest request) {
         passwordResetService.requestReset(request.getEmail());
@@ -91,8 +115,22 @@ public class AuthController {
     }
 
     @PostMapping("/logout")
-    public ResponseEntity<?> logoutUser() {
-        // In JWT implementation, logout is handled client-side by discarding the token
+    public ResponseEntity<?> logoutUser(
+            @RequestHeader(value = "Authorization", required = false) String authorizationHeader,
+            @RequestBody(required = false) RefreshTokenRequest refreshTokenRequest) {
+        if (refreshTokenRequest != null) {
+            refreshTokenService.revoke(refreshTokenRequest.getRefreshToken());
+        }
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
+            String token = authorizationHeader.substring(7);
+            try {
+                JwtUtil.ParsedToken parsed = verifiedTokenCache.verify(token);
+                tokenRevocationService.revoke(parsed.getClaims().getId(), parsed.getExpiration());
+                verifiedTokenCache.invalidate(token);
+            } catch (JwtException ex) {
+                // already invalid or expired, nothing to revoke
+            }
+        }
         return ResponseEntity.ok(new MessageResponse("Logout successful"));
     }
 }
@@ -3,6 +3,7 @@ package com.alcw.controller;
 import com.alcw.dto.ContactRequestDTO;
 import com.alcw.dto.ContactResponseDTO;
 import com.alcw.service.ContactService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -19,8 +20,9 @@ public class ContactController {
     private final ContactService contactService;
 
     @PostMapping
-    public ResponseEntity<ContactResponseDTO> contactUs(@Valid @ModelAttribute ContactRequestDTO request) {
-        ContactResponseDTO response = contactService.processContactRequest(request);
+    public ResponseEntity<ContactResponseDTO> contactUs(@Valid @ModelAttribute ContactRequestDTO request,
+                                                       HttpServletRequest httpRequest) {
+        ContactResponseDTO response = contactService.processContactRequest(request, httpRequest.getRemoteAddr());
         return ResponseEntity.ok(response);
     }
 }
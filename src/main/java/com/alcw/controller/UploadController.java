@@ -0,0 +1,32 @@
+package com.alcw.controller;
+
+import com.alcw.dto.UploadSignatureResponse;
+import com.alcw.service.DirectUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+public class UploadController {
+
+    private final DirectUploadService directUploadService;
+
+    // Public, like the contact form itself, so slots are tied to the client IP
+    @PostMapping("/contact/signature")
+    public ResponseEntity<UploadSignatureResponse> contactUploadSignature(HttpServletRequest httpRequest) {
+        return ResponseEntity.ok(directUploadService.sign(DirectUploadService.Target.CONTACT,
+                httpRequest.getRemoteAddr()));
+    }
+
+    @PostMapping("/profile/signature")
+    public ResponseEntity<UploadSignatureResponse> profileUploadSignature(Principal principal) {
+        return ResponseEntity.ok(directUploadService.sign(DirectUploadService.Target.PROFILE, principal.getName()));
+    }
+}
@@ -48,12 +48,14 @@ public class UserController {
             @RequestPart(value = "occupation", required = false) String occupation,
             @RequestPart(value = "password", required = false) String password,
             @RequestPart(value = "image", required = false) MultipartFile image,
+            @RequestPart(value = "imageReference", required = false) String imageReference,
             Principal principal) {
 
         UpdateProfileDTO updateDto = new UpdateProfileDTO();
         updateDto.setName(name);
         updateDto.setOccupation(occupation);
         updateDto.setPassword(password);
+        updateDto.setImageReference(imageReference);
 
         // Validate image if present
         if (image != null) {
@@ -17,6 +17,7 @@ public class AuthResponse {
     private String token;
     private String membershipId;
     private String profileImageUrl;
+    private String refreshToken;
 
     public AuthResponse(String id, String name, String email, String occupation, String message) {
         this.id = id;
@@ -23,5 +23,9 @@ public class ContactRequestDTO {
     private String message;
 
     private MultipartFile blogFile;
+
+    // Alternative to blogFile: public ID and resource type of a direct upload to Cloudinary
+    private String fileReference;
+    private String fileResourceType;
     // Removed captchaToken field
 }
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.alcw.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TokenRefreshResponse {
+    private String token;
+    private String refreshToken;
+}
@@ -7,4 +7,6 @@ public class UpdateProfileDTO {
     private String name;
     private String occupation;
     private String password;
+    // public ID of a profile image uploaded directly to Cloudinary
+    private String imageReference;
 }
\ No newline at end of file
@@ -0,0 +1,22 @@
+package com.alcw.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Parameters the browser posts to uploadUrl, together with the file
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSignatureResponse {
+    private String uploadUrl;
+    private String apiKey;
+    private long timestamp;
+    private String signature;
+    private String publicId;
+    private String allowedFormats;
+    private long maxFileSize;
+    // signed incoming transformation and format, when set the browser must send them unchanged
+    private String transformation;
+    private String format;
+}
@@ -0,0 +1,33 @@
+package com.alcw.exception;
+
+
+public class EmailTransportException extends RuntimeException {
+    // HTTP status from the provider, or 0 when the request did not complete
+    private final int statusCode;
+    private final long retryAfterMillis;
+
+    public EmailTransportException(int statusCode, long retryAfterMillis, String message) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public EmailTransportException(int statusCode, long retryAfterMillis, String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    // Rate limits, server errors and transport failures are worth another attempt
+    public boolean isRetryable() {
+        return statusCode == 0 || statusCode == 429 || statusCode >= 500;
+    }
+}
@@ -6,6 +6,9 @@ import lombok.Data;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Document(collection = "contact_submissions")
 @Data
@@ -19,7 +22,18 @@ public class ContactSubmission {
     private String fileUrl;
     private LocalDateTime submittedAt = LocalDateTime.now();
 
+    // Side effects run after the submission is saved; each records its outcome here.
+    // DONE means handed off (email queued in the outbox, row buffered for Sheets), not delivered.
+    private Map<String, StageStatus> stages = new LinkedHashMap<>();
+    private Map<String, String> stageErrors = new LinkedHashMap<>();
+    // when each stage was last claimed, so a RUNNING stage lost with its instance can be re-run
+    private Map<String, Date> stageClaimedAt = new LinkedHashMap<>();
+
     public enum ContactSubject {
         BLOG_SUBMISSION, COLLABORATION, REMARKS, OTHERS
     }
+
+    public enum StageStatus {
+        PENDING, RUNNING, DONE, FAILED, SKIPPED
+    }
 }
\ No newline at end of file
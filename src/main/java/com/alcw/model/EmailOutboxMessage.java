@@ -0,0 +1,71 @@
+package com.alcw.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+@Document(collection = "email_outbox")
+@CompoundIndex(name = "status_nextAttemptAt", def = "{'status': 1, 'nextAttemptAt': 1}")
+@Data
+public class EmailOutboxMessage {
+    @Id
+    private String id;
+
+    private String to;
+    private String subject;
+    // Holds OTP codes and reset links, so it is cleared once the message is SENT or DEAD
+    private String htmlContent;
+
+    // Resolved when the message is sent, so file contents are not stored in the outbox
+    private List<AttachmentRef> attachments = new ArrayList<>();
+
+    // Optional delivery deadline, e.g. the OTP's own expiry; later the message goes DEAD unsent
+    private Date expiresAt;
+
+    private Status status = Status.PENDING;
+    private int attempts;
+    private Date nextAttemptAt;
+
+    // Lease of the worker that claimed the message; an expired lease makes it claimable again
+    private Date lockedUntil;
+    private String lastError;
+
+    private Date createdAt = new Date();
+
+    // Delivered messages are purged after a week
+    @Indexed(expireAfterSeconds = 604800)
+    private Date sentAt;
+
+    // Dead letters are kept a month for inspection, then purged
+    @Indexed(expireAfterSeconds = 2592000)
+    private Date deadAt;
+
+    public enum Status {
+        PENDING, SENDING, SENT, DEAD
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AttachmentRef {
+        // key in StaticAttachmentRegistry, or a file URL resolved per message
+        private String staticKey;
+        private String url;
+
+        public static AttachmentRef staticAttachment(String key) {
+            return new AttachmentRef(key, null);
+        }
+
+        public static AttachmentRef url(String url) {
+            return new AttachmentRef(null, url);
+        }
+    }
+}
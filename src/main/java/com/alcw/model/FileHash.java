@@ -0,0 +1,33 @@
+package com.alcw.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Document(collection = "file_hashes")
+@Data
+@NoArgsConstructor
+public class FileHash {
+    // "<upload scope>:<sha-256 hex>", so the lookup is a plain _id read
+    @Id
+    private String id;
+
+    private String secureUrl;
+
+    private long size;
+
+    // Mappings expire after a week, so an asset deleted or moderated in Cloudinary is uploaded
+    // afresh rather than handed out forever
+    @Indexed(expireAfterSeconds = 604800)
+    private Date createdAt = new Date();
+
+    public FileHash(String id, String secureUrl, long size) {
+        this.id = id;
+        this.secureUrl = secureUrl;
+        this.size = size;
+    }
+}
@@ -0,0 +1,35 @@
+package com.alcw.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// A signed direct-upload slot; removed once the record referencing it is saved, or by the sweep
+@Document(collection = "issued_uploads")
+@CompoundIndex(name = "issuer_target", def = "{'issuer': 1, 'target': 1}")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IssuedUpload {
+    @Id
+    private String publicId;
+
+    // DirectUploadService.Target name
+    private String target;
+
+    // user email for profile images, client IP for the public contact form
+    private String issuer;
+
+    // when Cloudinary stops accepting the signature
+    @Indexed
+    private Date expiresAt;
+
+    // set while a request that references the upload is saving it; the sweep leaves such rows alone
+    private Date claimedAt;
+}
@@ -3,6 +3,7 @@ package com.alcw.model;
 
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
@@ -11,7 +12,12 @@ import java.time.LocalDateTime;
 public class OTP {
     @Id
     private String id;
+    @Indexed(unique = true)
     private String email;
     private String code;
+    private LocalDateTime issuedAt;
+
+    // TTL index: Mongo purges stale codes in the background
+    @Indexed(expireAfterSeconds = 0)
     private LocalDateTime expiryTime;
 }
@@ -0,0 +1,26 @@
+package com.alcw.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+// Registration waiting for OTP verification; the password is already BCrypt-hashed
+@Document(collection = "pending_registrations")
+@Data
+public class PendingRegistration {
+    @Id
+    private String email;
+    private String name;
+    private String passwordHash;
+    private User.Occupation occupation;
+
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+
+    public boolean isExpired() {
+        return expiresAt == null || expiresAt.getTime() <= System.currentTimeMillis();
+    }
+}
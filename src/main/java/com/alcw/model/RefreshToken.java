@@ -0,0 +1,27 @@
+package com.alcw.model;
+
+import lombok.Data;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Document(collection = "refresh_tokens")
+@Data
+public class RefreshToken {
+    @Id
+    private String id;
+
+    // SHA-256 of the token handed to the client; the raw value is never stored
+    @Indexed(unique = true)
+    private String tokenHash;
+
+    @Indexed
+    private String username;
+
+    private Date createdAt = new Date();
+
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+}
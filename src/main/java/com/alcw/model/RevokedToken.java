@@ -0,0 +1,23 @@
+package com.alcw.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+@Document(collection = "revoked_tokens")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+    @Id
+    private String jti;
+
+    // Mongo drops the entry once the token would have expired anyway
+    @Indexed(expireAfterSeconds = 0)
+    private Date expiresAt;
+}
@@ -0,0 +1,7 @@
+package com.alcw.repository;
+
+import com.alcw.model.FileHash;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface FileHashRepository extends MongoRepository<FileHash, String> {
+}
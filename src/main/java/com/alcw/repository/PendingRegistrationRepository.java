@@ -0,0 +1,7 @@
+package com.alcw.repository;
+
+import com.alcw.model.PendingRegistration;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface PendingRegistrationRepository extends MongoRepository<PendingRegistration, String> {
+}
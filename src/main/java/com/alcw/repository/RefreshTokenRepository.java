@@ -0,0 +1,10 @@
+package com.alcw.repository;
+
+import com.alcw.model.RefreshToken;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface RefreshTokenRepository extends MongoRepository<RefreshToken, String> {
+    void deleteByTokenHash(String tokenHash);
+
+    void deleteByUsername(String username);
+}
@@ -0,0 +1,11 @@
+package com.alcw.repository;
+
+import com.alcw.model.RevokedToken;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Date;
+import java.util.List;
+
+public interface RevokedTokenRepository extends MongoRepository<RevokedToken, String> {
+    List<RevokedToken> findByExpiresAtAfter(Date now);
+}
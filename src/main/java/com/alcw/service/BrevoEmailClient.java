@@ -8,15 +8,18 @@ import brevoModel.SendSmtpEmail;
 import brevoModel.SendSmtpEmailAttachment;
 import brevoModel.SendSmtpEmailSender;
 import brevoModel.SendSmtpEmailTo;
+import com.alcw.exception.EmailTransportException;
+import com.alcw.exception.ServiceUnavailableException;
+import com.alcw.util.ExternalCallGuard;
+import com.alcw.util.UrlFetcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 import brevo.ApiException;
 
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
@@ -24,13 +27,20 @@ import java.util.Map;
 
 /**
  * Wrapper around Brevo SDK TransactionalEmailsApi with improved logging/error details.
+ * The default {@link EmailTransport}; the email-memory and email-file profiles replace it.
  */
 @Component
-public class BrevoEmailClient {
+@Profile("!email-memory & !email-file")
+public class BrevoEmailClient implements EmailTransport {
 
     private static final Logger logger = LoggerFactory.getLogger(BrevoEmailClient.class);
 
+    // setUrl only exists in some SDK versions; looked up once instead of per attachment
+    private static final Method SET_URL = findSetUrl();
+
     private final TransactionalEmailsApi transactionalEmailsApi;
+    private final UrlFetcher urlFetcher;
+    private final ExternalCallGuard guard;
 
     @Value("${brevo.sender.email}")
     private String defaultSenderEmail;
@@ -38,15 +48,23 @@ public class BrevoEmailClient {
     @Value("${brevo.sender.name}")
     private String defaultSenderName;
 
-    public BrevoEmailClient(TransactionalEmailsApi transactionalEmailsApi) {
+    public BrevoEmailClient(TransactionalEmailsApi transactionalEmailsApi, UrlFetcher urlFetcher,
+                            ExternalCallGuard guard) {
         this.transactionalEmailsApi = transactionalEmailsApi;
+        this.urlFetcher = urlFetcher;
+        this.guard = guard;
+    }
+
+    @Override
+    public void send(String toEmail, String subject, String htmlContent, List<EmailAttachment> attachments) {
+        sendEmail(toEmail, subject, htmlContent, attachments, null);
     }
 
     public void sendEmail(String toEmail,
                           String subject,
                           String htmlContent,
-                          List<Attachment> attachments,
-                          Map<String, Object> params) throws ApiException {
+                          List<EmailAttachment> attachments,
+                          Map<String, Object> params) {
 
         SendSmtpEmail request = new SendSmtpEmail();
         SendSmtpEmailSender sender = new SendSmtpEmailSender();
@@ -69,7 +87,7 @@ public class BrevoEmailClient {
 
         if (attachments != null && !attachments.isEmpty()) {
             List<SendSmtpEmailAttachment> sdkAtts = new ArrayList<>();
-            for (Attachment att : attachments) {
+            for (EmailAttachment att : attachments) {
                 SendSmtpEmailAttachment sdkAtt = new SendSmtpEmailAttachment();
                 sdkAtt.setName(att.getName());
 
@@ -80,11 +98,13 @@ public class BrevoEmailClient {
                     byte[] bytes = Base64.getDecoder().decode(att.getBase64String());
                     sdkAtt.setContent(bytes);
                 } else if (att.getUrl() != null) {
-                    // try reflective setUrl (some SDK versions support it)
-                    try {
-                        var method = SendSmtpEmailAttachment.class.getMethod("setUrl", String.class);
-                        method.invoke(sdkAtt, att.getUrl());
-                    } catch (NoSuchMethodException nsme) {
+                    if (SET_URL != null) {
+                        try {
+                            SET_URL.invoke(sdkAtt, att.getUrl());
+                        } catch (Exception e) {
+                            logger.warn("Attachment url reflection error: {}", e.getMessage());
+                        }
+                    } else {
                         // fallback: fetch bytes from public URL and set content
                         try {
                             byte[] bytes = fetchBytesFromUrl(att.getUrl());
@@ -92,8 +112,6 @@ public class BrevoEmailClient {
                         } catch (Exception ex) {
                             logger.warn("Could not fetch attachment from URL {}: {}", att.getUrl(), ex.getMessage());
                         }
-                    } catch (Exception e) {
-                        logger.warn("Attachment url reflection error: {}", e.getMessage());
                     }
                 }
 
@@ -104,7 +122,7 @@ public class BrevoEmailClient {
 
         try {
             logger.debug("Sending email to={} subject={} sender={}", toEmail, subject, defaultSenderEmail);
-            transactionalEmailsApi.sendTransacEmail(request);
+            guard.call(ExternalCallGuard.BREVO, () -> transactionalEmailsApi.sendTransacEmail(request));
             logger.info("Sent email via Brevo to {}", toEmail);
         } catch (ApiException ex) {
             // Log full ApiException details (status, body, headers) to find root cause quickly
@@ -124,71 +142,58 @@ public class BrevoEmailClient {
                 default -> "Brevo returned error code " + code;
             };
 
-            // throw a RuntimeException with all details so your global handler sees it
-            throw new ApiException(code,
-                    "Brevo ApiException: " + human + " | responseBody=" + responseBody,
-                    ex.getResponseHeaders(),
-                    ex.getResponseBody());
+            throw new EmailTransportException(code, retryAfterMillis(headers),
+                    "Brevo ApiException: " + human + " | responseBody=" + responseBody, ex);
+        } catch (ServiceUnavailableException e) {
+            // circuit open or bulkhead full: the outbox retries later
+            throw e;
         } catch (Exception e) {
             logger.error("Unexpected error while sending email via Brevo: {}", e.getMessage(), e);
-            throw new RuntimeException("Unexpected error while sending email via Brevo: " + e.getMessage(), e);
+            throw new EmailTransportException(0, 0,
+                    "Unexpected error while sending email via Brevo: " + e.getMessage(), e);
         }
     }
 
-    private byte[] fetchBytesFromUrl(String fileUrl) {
-        InputStream in = null;
+    private static Method findSetUrl() {
         try {
-            URL url = new URL(fileUrl);
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setConnectTimeout(10_000);
-            con.setReadTimeout(20_000);
-            con.setRequestMethod("GET");
-            con.connect();
-            int code = con.getResponseCode();
-            if (code >= 200 && code < 300) {
-                in = con.getInputStream();
-                return in.readAllBytes();
-            } else {
-                logger.warn("Failed to fetch URL {} status={}", fileUrl, code);
-            }
-        } catch (Exception e) {
-            logger.warn("Error fetching URL {}: {}", fileUrl, e.getMessage());
-        } finally {
-            if (in != null) try { in.close(); } catch (Exception ignored) {}
+            return SendSmtpEmailAttachment.class.getMethod("setUrl", String.class);
+        } catch (NoSuchMethodException e) {
+            return null;
         }
-        return null;
     }
 
-    // Attachment DTO
-    public static class Attachment {
-        private final String name;
-        private final byte[] content;      // raw bytes preferred
-        private final String base64String; // alternative
-        private final String url;          // optional public URL
-
-        public Attachment(String name, byte[] content, String base64String, String url) {
-            this.name = name;
-            this.content = content;
-            this.base64String = base64String;
-            this.url = url;
-        }
-
-        public String getName() { return name; }
-        public byte[] getContent() { return content; }
-        public String getBase64String() { return base64String; }
-        public String getUrl() { return url; }
+    // Whether Brevo can fetch URL attachments itself, without this client downloading them
+    @Override
+    public boolean supportsUrlAttachments() {
+        return SET_URL != null;
+    }
 
-        public static Attachment fromBytes(String name, byte[] content) {
-            return new Attachment(name, content, null, null);
+    private static long retryAfterMillis(Map<String, List<String>> headers) {
+        if (headers == null) {
+            return 0;
         }
-        public static Attachment fromBase64(String name, String base64) {
-            return new Attachment(name, null, base64, null);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("retry-after".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                try {
+                    return Long.parseLong(header.getValue().get(0).trim()) * 1000;
+                } catch (NumberFormatException ignored) {
+                    return 0;
+                }
+            }
         }
-        public static Attachment fromUrl(String name, String url) {
-            return new Attachment(name, null, null, url);
+        return 0;
+    }
+
+    private byte[] fetchBytesFromUrl(String fileUrl) {
+        try {
+            byte[] bytes = urlFetcher.fetch(fileUrl);
+            if (bytes == null) {
+                logger.warn("File at {} exceeds the download limit", fileUrl);
+            }
+            return bytes;
+        } catch (Exception e) {
+            logger.warn("Error fetching URL {}: {}", fileUrl, e.getMessage());
         }
+        return null;
     }
 }
-
-
-
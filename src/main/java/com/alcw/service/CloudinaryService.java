@@ -1,29 +1,273 @@
 package com.alcw.service;
 
 
+import com.alcw.exception.ServiceUnavailableException;
+import com.alcw.model.FileHash;
+import com.alcw.repository.FileHashRepository;
+import com.alcw.util.ExternalCallGuard;
+import com.alcw.util.Hashing;
 import com.cloudinary.Cloudinary;
 import com.cloudinary.utils.ObjectUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Uploads multipart files to Cloudinary without loading them onto the heap: the upload is
+ * spooled to a temp file and streamed from disk, and files above the large-file threshold
+ * are sent in chunks. The number of uploads in flight is capped.
+ * <p>
+ * Each upload is first hashed with SHA-256. If the same content was already uploaded with
+ * the same options, the stored {@code secure_url} is returned and nothing is sent, so a
+ * resubmitted brochure costs one read of the file.
+ */
 @Service
 public class CloudinaryService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CloudinaryService.class);
+
+    public static final String BOUNDED_IMAGE_FORMAT = "jpg";
+
     private final Cloudinary cloudinary;
+    private final ExternalCallGuard guard;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore uploadSlots;
+    private final DistributionSummary uploadBytes;
+    private final FileHashRepository fileHashRepository;
+    private final Cache<String, String> knownUploads;
+    private final Counter deduplicatedUploads;
+
+    @Value("${app.upload.dedup.enabled:true}")
+    private boolean dedupEnabled;
 
-    public CloudinaryService(Cloudinary cloudinary) {
+    @Value("${app.upload.large-file-threshold-bytes:10485760}")
+    private long largeFileThreshold;
+
+    @Value("${app.upload.chunk-size-bytes:6291456}")
+    private int chunkSize;
+
+    @Value("${app.upload.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMillis;
+
+    public CloudinaryService(Cloudinary cloudinary, ExternalCallGuard guard, MeterRegistry meterRegistry,
+                             FileHashRepository fileHashRepository,
+                             @Value("${app.upload.max-concurrent:4}") int maxConcurrentUploads,
+                             @Value("${app.upload.dedup.cache-size:10000}") long dedupCacheSize,
+                             @Value("${app.upload.dedup.cache-ttl-minutes:60}") long dedupCacheTtlMinutes) {
         this.cloudinary = cloudinary;
+        this.guard = guard;
+        this.meterRegistry = meterRegistry;
+        this.fileHashRepository = fileHashRepository;
+        this.knownUploads = Caffeine.newBuilder()
+                .maximumSize(dedupCacheSize)
+                .expireAfterWrite(Duration.ofMinutes(dedupCacheTtlMinutes))
+                .build();
+        this.deduplicatedUploads = Counter.builder("cloudinary.upload.deduplicated")
+                .description("Uploads skipped because the same content was already stored")
+                .register(meterRegistry);
+        this.uploadSlots = new Semaphore(maxConcurrentUploads);
+        this.uploadBytes = DistributionSummary.builder("cloudinary.upload.size")
+                .description("Bytes per file uploaded to Cloudinary")
+                .baseUnit("bytes")
+                .register(meterRegistry);
     }
 
     public String uploadFile(MultipartFile file) {
+        return upload(file, ObjectUtils.asMap("resource_type", "auto"));
+    }
+
+    /**
+     * Uploads an image the server could not re-encode itself. An incoming transformation
+     * bounds it to {@code maxDimension} and stores it as JPEG, which drops EXIF (GPS
+     * included) and the colour profile before the original is discarded.
+     */
+    public String uploadImage(MultipartFile image, String folder, int maxDimension) {
+        return upload(image, ObjectUtils.asMap(
+                "folder", folder,
+                "transformation", boundedImageTransformation(maxDimension),
+                "format", BOUNDED_IMAGE_FORMAT));
+    }
+
+    // Also signed into direct avatar uploads, so both paths store the same stripped JPEG
+    public static String boundedImageTransformation(int maxDimension) {
+        return "c_limit,w_" + maxDimension + ",h_" + maxDimension + ",fl_strip_profile";
+    }
+
+    // Already-processed image bytes, e.g. a downscaled avatar
+    public String uploadImage(byte[] image, String folder) {
+        Map<?, ?> options = ObjectUtils.asMap("folder", folder);
+        String key = dedupEnabled ? dedupKey(Hashing.sha256Hex(image), options) : null;
+        String existing = findExisting(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        String url;
+        acquireSlot();
         try {
-            Map<?, ?> uploadResult = cloudinary.uploader().upload(file.getBytes(),
-                    ObjectUtils.asMap("resource_type", "auto"));
-            return (String) uploadResult.get("secure_url");
+            url = send(image, image.length, options);
+        } finally {
+            uploadSlots.release();
+        }
+        remember(key, url, image.length);
+        return url;
+    }
+
+    private String upload(MultipartFile file, Map<?, ?> options) {
+        // hashed before taking a slot, so duplicates never wait behind real uploads
+        String key = dedupEnabled ? dedupKey(hash(file), options) : null;
+        String existing = findExisting(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        String url;
+        acquireSlot();
+        Path spooled = null;
+        try {
+            // the File overload goes through Part.write, which renames the container's own temp
+            // file where it can; the Path overload always copies the stream
+            spooled = Files.createTempFile("alc-upload-", ".tmp");
+            file.transferTo(spooled.toFile());
+            url = send(spooled.toFile(), file.getSize(), options);
         } catch (IOException e) {
             throw new RuntimeException("Failed to upload file", e);
+        } finally {
+            uploadSlots.release();
+            deleteQuietly(spooled);
+        }
+        remember(key, url, file.getSize());
+        return url;
+    }
+
+    private static String hash(MultipartFile file) {
+        MessageDigest digest = Hashing.sha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to upload file", e);
+        }
+        return Hashing.hex(digest);
+    }
+
+    // Same bytes uploaded with different options (folder, resource type, transformation) are different assets
+    private static String dedupKey(String sha256Hex, Map<?, ?> options) {
+        Object resourceType = options.get("resource_type");
+        Object folder = options.get("folder");
+        Object transformation = options.get("transformation");
+        return (resourceType == null ? "image" : resourceType) + "/" + (folder == null ? "" : folder)
+                + (transformation == null ? "" : "/" + transformation)
+                + ":" + sha256Hex;
+    }
+
+    private String findExisting(String key) {
+        if (key == null) {
+            return null;
+        }
+        String url = knownUploads.getIfPresent(key);
+        if (url == null) {
+            try {
+                url = fileHashRepository.findById(key).map(FileHash::getSecureUrl).orElse(null);
+            } catch (DataAccessException e) {
+                // the lookup is only an optimisation; fall through to a normal upload
+                logger.warn("File hash lookup failed: {}", e.getMessage());
+                return null;
+            }
+            if (url != null) {
+                knownUploads.put(key, url);
+            }
+        }
+        if (url != null) {
+            deduplicatedUploads.increment();
+        }
+        return url;
+    }
+
+    private void remember(String key, String url, long size) {
+        if (key == null || url == null) {
+            return;
+        }
+        knownUploads.put(key, url);
+        try {
+            fileHashRepository.save(new FileHash(key, url, size));
+        } catch (DataAccessException e) {
+            logger.warn("Could not record file hash: {}", e.getMessage());
+        }
+    }
+
+    private String send(Object source, long size, Map<?, ?> options) {
+        boolean chunked = source instanceof File && size > largeFileThreshold;
+        boolean success = false;
+        long start = System.nanoTime();
+        try {
+            Map<?, ?> uploadResult = guard.call(ExternalCallGuard.CLOUDINARY, () -> chunked
+                    ? cloudinary.uploader().uploadLarge(source, withChunkSize(options))
+                    : cloudinary.uploader().upload(source, options));
+            uploadBytes.record(size);
+            success = true;
+            return (String) uploadResult.get("secure_url");
+        } catch (ServiceUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to upload file", e);
+        } finally {
+            Timer.builder("cloudinary.upload.latency")
+                    .description("Time to upload one file to Cloudinary")
+                    .tag("mode", chunked ? "chunked" : "direct")
+                    .tag("outcome", success ? "success" : "failure")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void acquireSlot() {
+        try {
+            if (uploadSlots.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        throw new ServiceUnavailableException("Too many uploads in progress, please try again shortly");
+    }
+
+    private Map<Object, Object> withChunkSize(Map<?, ?> options) {
+        Map<Object, Object> chunkedOptions = new HashMap<>(options);
+        chunkedOptions.put("chunk_size", chunkSize);
+        return chunkedOptions;
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete spooled upload {}: {}", path, e.getMessage());
         }
     }
 }
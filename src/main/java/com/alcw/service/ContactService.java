@@ -5,5 +5,5 @@ import com.alcw.dto.ContactRequestDTO;
 import com.alcw.dto.ContactResponseDTO;
 
 public interface ContactService {
-    ContactResponseDTO processContactRequest(ContactRequestDTO request);
+    ContactResponseDTO processContactRequest(ContactRequestDTO request, String clientIp);
 }
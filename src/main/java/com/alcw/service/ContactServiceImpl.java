@@ -5,33 +5,103 @@ import com.alcw.dto.ContactRequestDTO;
 import com.alcw.dto.ContactResponseDTO;
 import com.alcw.model.ContactSubmission;
 import com.alcw.repository.ContactRepository;
-import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Handles contact-form submissions. The request returns once the upload and the Mongo save
+ * are done; the Sheets row and both emails then run concurrently on a small dedicated pool,
+ * and each stage's outcome is written back to the submission document. A stage is
+ * {@code DONE} once it has been handed off: the emails are queued in the outbox and the row
+ * is buffered for the next Sheets append, so actual delivery happens later.
+ * <p>
+ * Stages never run on the request thread. When the pool's queue is full, or the instance
+ * stops before a queued stage runs, the stage stays {@code PENDING}. A periodic sweep re-runs
+ * stages that are still {@code PENDING}, or {@code RUNNING} past their lease, a few minutes
+ * after submission. Each run first claims its stage in Mongo, so a stage runs once.
+ */
 @Service
-@RequiredArgsConstructor
-public class ContactServiceImpl implements ContactService {
+public class ContactServiceImpl implements ContactService, DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(ContactServiceImpl.class);
 
+    static final String STAGE_SHEETS = "sheets";
+    static final String STAGE_USER_EMAIL = "userEmail";
+    static final String STAGE_ADMIN_EMAIL = "adminEmail";
+    private static final List<String> STAGES = List.of(STAGE_SHEETS, STAGE_USER_EMAIL, STAGE_ADMIN_EMAIL);
+
     private final CloudinaryService cloudinaryService;
+    private final DirectUploadService directUploadService;
     private final EmailService emailService; // should be Brevo-backed EmailService
     private final GoogleSheetsService googleSheetsService;
     private final ContactRepository contactRepository;
+    private final MongoOperations mongoOperations;
+    private final ThreadPoolExecutor sideEffectExecutor;
 
     // admin recipient (not the Brevo sender). Configure in application.properties.
     @Value("${app.admin.email}")
     private String adminEmail;
 
+    // A RUNNING stage older than this is assumed lost with its instance and may be re-run
+    @Value("${app.contact.stage-lease-ms:600000}")
+    private long stageLeaseMillis;
+
+    // How long a stage may wait in the queue before the sweep takes it over
+    @Value("${app.contact.sweep-after-ms:600000}")
+    private long sweepAfterMillis;
+
+    @Value("${app.contact.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    public ContactServiceImpl(CloudinaryService cloudinaryService,
+                              DirectUploadService directUploadService,
+                              EmailService emailService,
+                              GoogleSheetsService googleSheetsService,
+                              ContactRepository contactRepository,
+                              MongoOperations mongoOperations,
+                              @Value("${app.contact.executor.threads:4}") int threads,
+                              @Value("${app.contact.executor.queue-capacity:200}") int queueCapacity) {
+        this.cloudinaryService = cloudinaryService;
+        this.directUploadService = directUploadService;
+        this.emailService = emailService;
+        this.googleSheetsService = googleSheetsService;
+        this.contactRepository = contactRepository;
+        this.mongoOperations = mongoOperations;
+        // when the queue is full the stage is rejected and left PENDING for the sweep
+        this.sideEffectExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("contact-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
     @Override
-    public ContactResponseDTO processContactRequest(ContactRequestDTO request) {
+    public ContactResponseDTO processContactRequest(ContactRequestDTO request, String clientIp) {
         // CAPTCHA verification removed
 
         // Upload file if exists
         String fileUrl = null;
+        String fileReference = null;
         if (request.getBlogFile() != null && !request.getBlogFile().isEmpty()) {
             try {
                 fileUrl = cloudinaryService.uploadFile(request.getBlogFile());
@@ -39,23 +109,48 @@ public class ContactServiceImpl implements ContactService {
                 logger.warn("Cloudinary upload failed: {}", ex.getMessage(), ex);
                 // proceed without file URL; or rethrow if you want to fail the request
             }
+        } else if (request.getFileReference() != null && !request.getFileReference().isBlank()) {
+            // uploaded by the browser; only the reference is checked here
+            fileReference = request.getFileReference();
+            fileUrl = directUploadService.verify(DirectUploadService.Target.CONTACT,
+                    fileReference, request.getFileResourceType(), clientIp);
         }
 
-        // Save to database
+        boolean sendsEmails = switch (request.getSubject()) {
+            case BLOG_SUBMISSION, COLLABORATION -> true;
+            default -> false;
+        };
+
+        // Save to database, with every side effect still pending
         ContactSubmission submission = new ContactSubmission();
         submission.setName(request.getName());
         submission.setEmail(request.getEmail());
         submission.setSubject(request.getSubject());
         submission.setMessage(request.getMessage());
         submission.setFileUrl(fileUrl);
-        contactRepository.save(submission);
-
-        // Write to Google Sheets (wrap in try/catch so failures don't stop flow)
+        ContactSubmission.StageStatus emailStage = sendsEmails
+                ? ContactSubmission.StageStatus.PENDING : ContactSubmission.StageStatus.SKIPPED;
+        submission.getStages().put(STAGE_SHEETS, ContactSubmission.StageStatus.PENDING);
+        submission.getStages().put(STAGE_USER_EMAIL, emailStage);
+        submission.getStages().put(STAGE_ADMIN_EMAIL, emailStage);
+        ContactSubmission saved;
         try {
-            googleSheetsService.writeToSheet(request.getName(), request.getEmail(),
-                    request.getSubject().name(), request.getMessage(), fileUrl);
-        } catch (Exception ex) {
-            logger.warn("Failed to write contact to Google Sheets: {}", ex.getMessage(), ex);
+            saved = contactRepository.save(submission);
+        } catch (RuntimeException ex) {
+            if (fileReference != null) {
+                directUploadService.release(DirectUploadService.Target.CONTACT, fileReference, clientIp);
+            }
+            throw ex;
+        }
+        if (fileReference != null) {
+            directUploadService.consume(DirectUploadService.Target.CONTACT, fileReference, clientIp);
+        }
+
+        // Fan out; failures are logged and recorded on the submission, never returned to the user
+        runStage(saved, STAGE_SHEETS);
+        if (sendsEmails) {
+            runStage(saved, STAGE_USER_EMAIL);
+            runStage(saved, STAGE_ADMIN_EMAIL);
         }
 
         // Prepare response
@@ -69,31 +164,7 @@ public class ContactServiceImpl implements ContactService {
         switch (request.getSubject()) {
             case BLOG_SUBMISSION:
             case COLLABORATION:
-                // Send user confirmation and admin notification. Catch exceptions from email layer so contact flow succeeds.
-                try {
-                    emailService.sendUserConfirmation(request.getEmail(), request.getName(),
-                            request.getSubject(), fileUrl);
-                } catch (Exception ex) {
-                    logger.error("Failed to send user confirmation email to {}: {}", request.getEmail(), ex.getMessage(), ex);
-                    // keep going; inform user that submission was received but confirmation failed
-                    response.setStatus("Thank you! We've received your submission. (Warning: confirmation email could not be sent)");
-                }
-
-                try {
-                    emailService.sendAdminNotification(adminEmail, request.getName(),
-                            request.getEmail(), request.getSubject(), request.getMessage(), fileUrl);
-                } catch (Exception ex) {
-                    logger.error("Failed to send admin notification to {}: {}", adminEmail, ex.getMessage(), ex);
-                    // do not expose internal errors to end user; only log
-                    if (response.getStatus() == null) {
-                        response.setStatus("Thank you! We've received your submission. (Admin notification failed)");
-                    }
-                }
-
-                // If no explicit status was set by catch blocks, set success message
-                if (response.getStatus() == null) {
-                    response.setStatus("Thank you! We've received your submission and sent a confirmation email.");
-                }
+                response.setStatus("Thank you! We've received your submission and will email you a confirmation shortly.");
                 break;
 
             case REMARKS:
@@ -108,4 +179,99 @@ public class ContactServiceImpl implements ContactService {
 
         return response;
     }
+
+    private void runStage(ContactSubmission submission, String stage) {
+        try {
+            sideEffectExecutor.execute(() -> executeStage(submission, stage));
+        } catch (RejectedExecutionException ex) {
+            logger.warn("Contact executor saturated, leaving stage {} of submission {} for the sweep",
+                    stage, submission.getId());
+        }
+    }
+
+    private void executeStage(ContactSubmission submission, String stage) {
+        String submissionId = submission.getId();
+        if (!claimStage(submissionId, stage)) {
+            return; // already taken by the sweep or another instance
+        }
+        try {
+            switch (stage) {
+                case STAGE_SHEETS -> googleSheetsService.writeToSheet(submission.getName(), submission.getEmail(),
+                        submission.getSubject().name(), submission.getMessage(), submission.getFileUrl());
+                case STAGE_USER_EMAIL -> emailService.sendUserConfirmation(submission.getEmail(),
+                        submission.getName(), submission.getSubject(), submission.getFileUrl());
+                case STAGE_ADMIN_EMAIL -> emailService.sendAdminNotification(adminEmail, submission.getName(),
+                        submission.getEmail(), submission.getSubject(), submission.getMessage(),
+                        submission.getFileUrl());
+                default -> throw new IllegalArgumentException("Unknown stage " + stage);
+            }
+            recordStage(submissionId, stage, ContactSubmission.StageStatus.DONE, null);
+        } catch (Exception ex) {
+            logger.error("Contact submission {} stage {} failed: {}", submissionId, stage, ex.getMessage(), ex);
+            recordStage(submissionId, stage, ContactSubmission.StageStatus.FAILED, ex.getMessage());
+        }
+    }
+
+    // PENDING, or RUNNING with an expired lease, becomes RUNNING for this caller only
+    private boolean claimStage(String submissionId, String stage) {
+        Date now = new Date();
+        Query query = Query.query(where("id").is(submissionId).orOperator(
+                where("stages." + stage).is(ContactSubmission.StageStatus.PENDING),
+                where("stages." + stage).is(ContactSubmission.StageStatus.RUNNING)
+                        .and("stageClaimedAt." + stage).lte(new Date(now.getTime() - stageLeaseMillis))));
+        Update update = new Update()
+                .set("stages." + stage, ContactSubmission.StageStatus.RUNNING)
+                .set("stageClaimedAt." + stage, now);
+        return mongoOperations.updateFirst(query, update, ContactSubmission.class).getModifiedCount() > 0;
+    }
+
+    // Picks up stages rejected by a full queue or lost when an instance stopped
+    @Scheduled(fixedDelayString = "${app.contact.sweep-interval-ms:300000}")
+    public void sweepUnfinishedStages() {
+        List<Criteria> unfinished = new ArrayList<>();
+        for (String stage : STAGES) {
+            unfinished.add(where("stages." + stage).in(ContactSubmission.StageStatus.PENDING,
+                    ContactSubmission.StageStatus.RUNNING));
+        }
+        Query query = Query.query(where("submittedAt")
+                        .lte(LocalDateTime.now().minus(Duration.ofMillis(sweepAfterMillis)))
+                        .orOperator(unfinished.toArray(new Criteria[0])))
+                .limit(sweepBatchSize);
+
+        List<ContactSubmission> submissions;
+        try {
+            submissions = mongoOperations.find(query, ContactSubmission.class);
+        } catch (Exception ex) {
+            logger.warn("Could not look up unfinished contact stages: {}", ex.getMessage());
+            return;
+        }
+        for (ContactSubmission submission : submissions) {
+            submission.getStages().forEach((stage, status) -> {
+                if (status == ContactSubmission.StageStatus.PENDING
+                        || status == ContactSubmission.StageStatus.RUNNING) {
+                    runStage(submission, stage);
+                }
+            });
+        }
+    }
+
+    // Field-level update, so concurrent stages never overwrite each other's status
+    private void recordStage(String submissionId, String stage, ContactSubmission.StageStatus status, String error) {
+        Update update = new Update().set("stages." + stage, status);
+        if (error != null) {
+            update.set("stageErrors." + stage, error);
+        }
+        try {
+            mongoOperations.updateFirst(Query.query(where("id").is(submissionId)), update, ContactSubmission.class);
+        } catch (Exception ex) {
+            logger.warn("Could not record stage {} for contact submission {}: {}", stage, submissionId, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // let queued stages finish; any still queued after the wait stay PENDING and the sweep re-runs them
+        sideEffectExecutor.shutdown();
+        sideEffectExecutor.awaitTermination(30, TimeUnit.SECONDS);
+    }
 }
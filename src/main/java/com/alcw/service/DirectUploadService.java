@@ -0,0 +1,266 @@
+package com.alcw.service;
+
+import com.alcw.dto.UploadSignatureResponse;
+import com.alcw.exception.InvalidRequestException;
+import com.alcw.exception.ServiceUnavailableException;
+import com.alcw.exception.TooManyRequestsException;
+import com.alcw.model.IssuedUpload;
+import com.alcw.util.ExternalCallGuard;
+import com.cloudinary.Cloudinary;
+import com.cloudinary.api.exceptions.NotFound;
+import com.cloudinary.utils.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Browser-to-Cloudinary uploads. The client asks for a signature, posts the file straight
+ * to Cloudinary, then sends back the public ID it was given. The signature pins the public
+ * ID (and the allowed formats, for images), so a reference can only point at a file in
+ * our own folders. Cloudinary accepts a signature for one hour after its timestamp.
+ * <p>
+ * Every issued public ID is recorded with its issuer, and a reference is accepted once, from
+ * the same issuer. Verification claims the slot; the caller consumes it after saving the record
+ * that points at the file, or releases it if the save fails. Each issuer can hold only a few unused signatures at a time. Cloudinary
+ * cannot enforce a size limit on a signed upload, so it is checked on verification and files
+ * over the limit are deleted. Uploads that are never referenced are deleted by a sweep once
+ * their signature has expired.
+ */
+@Service
+public class DirectUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectUploadService.class);
+
+    private static final Set<String> RESOURCE_TYPES = Set.of("image", "raw", "video");
+
+    public enum Target {
+        CONTACT("alc_contact", "auto", null, List.of("image", "raw", "video"), false),
+        PROFILE("alc_profiles", "image", "jpg,jpeg,png,webp,gif", List.of("image"), true);
+
+        private final String folder;
+        private final String resourceType;
+        private final String allowedFormats;
+        // what an "auto" upload may have been stored as, for the sweep
+        private final List<String> storedTypes;
+        // downscaled and stripped by Cloudinary on the way in, like server-side avatar uploads
+        private final boolean boundedImage;
+
+        Target(String folder, String resourceType, String allowedFormats, List<String> storedTypes,
+               boolean boundedImage) {
+            this.folder = folder;
+            this.resourceType = resourceType;
+            this.allowedFormats = allowedFormats;
+            this.storedTypes = storedTypes;
+            this.boundedImage = boundedImage;
+        }
+    }
+
+    private static final Duration SIGNATURE_VALIDITY = Duration.ofHours(1);
+
+    private final Cloudinary cloudinary;
+    private final ExternalCallGuard guard;
+    private final MongoOperations mongoOperations;
+
+    @Value("${app.upload.direct.contact-max-bytes:26214400}")
+    private long contactMaxBytes;
+
+    @Value("${app.upload.direct.profile-max-bytes:5242880}")
+    private long profileMaxBytes;
+
+    @Value("${app.image.max-dimension:512}")
+    private int imageMaxDimension;
+
+    @Value("${app.upload.direct.max-outstanding-per-issuer:5}")
+    private long maxOutstandingPerIssuer;
+
+    // time after the signature expires during which a finished upload can still be referenced
+    @Value("${app.upload.direct.sweep-grace-ms:900000}")
+    private long sweepGraceMillis;
+
+    @Value("${app.upload.direct.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    public DirectUploadService(Cloudinary cloudinary, ExternalCallGuard guard, MongoOperations mongoOperations) {
+        this.cloudinary = cloudinary;
+        this.guard = guard;
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * Signs an upload slot for {@code issuer}: the user's email for profile images, the
+     * client IP for the public contact form.
+     */
+    public UploadSignatureResponse sign(Target target, String issuer) {
+        long outstanding = mongoOperations.count(issuedTo(target, issuer), IssuedUpload.class);
+        if (outstanding >= maxOutstandingPerIssuer) {
+            throw new TooManyRequestsException("Too many pending uploads. Please try again later.",
+                    SIGNATURE_VALIDITY.toSeconds());
+        }
+
+        Instant now = Instant.now();
+        long timestamp = now.getEpochSecond();
+        String publicId = target.folder + "/" + UUID.randomUUID();
+        mongoOperations.insert(new IssuedUpload(publicId, target.name(), issuer,
+                Date.from(now.plus(SIGNATURE_VALIDITY)), null));
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("timestamp", timestamp);
+        params.put("public_id", publicId);
+        if (target.allowedFormats != null) {
+            params.put("allowed_formats", target.allowedFormats);
+        }
+        String transformation = null;
+        String format = null;
+        if (target.boundedImage) {
+            transformation = CloudinaryService.boundedImageTransformation(imageMaxDimension);
+            format = CloudinaryService.BOUNDED_IMAGE_FORMAT;
+            params.put("transformation", transformation);
+            params.put("format", format);
+        }
+        String signature = cloudinary.apiSignRequest(params, cloudinary.config.apiSecret);
+
+        String uploadUrl = "https://api.cloudinary.com/v1_1/" + cloudinary.config.cloudName
+                + "/" + target.resourceType + "/upload";
+        return new UploadSignatureResponse(uploadUrl, cloudinary.config.apiKey, timestamp, signature,
+                publicId, target.allowedFormats, maxBytes(target), transformation, format);
+    }
+
+    /**
+     * Checks that the referenced file was signed for this issuer and target, has not been
+     * referenced before and is within the size limit, claims it and returns its secure URL.
+     * {@code resourceType} is the one Cloudinary reported for the upload; profile images are
+     * always {@code image}. The caller must follow up with {@link #consume} once the record
+     * holding the URL is saved, or {@link #release} if saving fails.
+     */
+    public String verify(Target target, String publicId, String resourceType, String issuer) {
+        if (publicId == null || !publicId.startsWith(target.folder + "/")) {
+            throw new InvalidRequestException("Invalid upload reference");
+        }
+        Query issuedQuery = unclaimed(target, publicId, issuer);
+        if (!mongoOperations.exists(issuedQuery, IssuedUpload.class)) {
+            throw new InvalidRequestException("Invalid upload reference");
+        }
+        String type = target == Target.PROFILE ? "image" : resourceType;
+        if (type == null || !RESOURCE_TYPES.contains(type)) {
+            throw new InvalidRequestException("Invalid upload resource type");
+        }
+
+        Map<?, ?> resource;
+        try {
+            resource = guard.call(ExternalCallGuard.CLOUDINARY,
+                    () -> cloudinary.api().resource(publicId, ObjectUtils.asMap("resource_type", type)));
+        } catch (NotFound e) {
+            throw new InvalidRequestException("Uploaded file not found");
+        } catch (ServiceUnavailableException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to verify upload", e);
+        }
+
+        Object bytes = resource.get("bytes");
+        if (bytes instanceof Number size && size.longValue() > maxBytes(target)) {
+            mongoOperations.remove(issuedQuery, IssuedUpload.class);
+            try {
+                delete(publicId, type);
+            } catch (Exception e) {
+                logger.warn("Could not delete oversized upload {}: {}", publicId, e.getMessage());
+            }
+            throw new InvalidRequestException("Uploaded file exceeds the size limit");
+        }
+
+        // claiming the slot is the atomic step: a second reference, or one racing the sweep, fails here
+        if (mongoOperations.findAndModify(issuedQuery, new Update().set("claimedAt", new Date()),
+                IssuedUpload.class) == null) {
+            throw new InvalidRequestException("Invalid upload reference");
+        }
+        return (String) resource.get("secure_url");
+    }
+
+    // The record pointing at the upload is saved, so the file is no longer the sweep's to delete
+    public void consume(Target target, String publicId, String issuer) {
+        try {
+            mongoOperations.remove(slot(target, publicId, issuer), IssuedUpload.class);
+        } catch (Exception e) {
+            // a claimed row is never swept, so the file stays safe; only the row lingers
+            logger.warn("Could not consume upload slot {}: {}", publicId, e.getMessage());
+        }
+    }
+
+    // Saving failed: the reference may be retried, and the sweep deletes the file if it is not
+    public void release(Target target, String publicId, String issuer) {
+        try {
+            mongoOperations.updateFirst(slot(target, publicId, issuer), new Update().unset("claimedAt"),
+                    IssuedUpload.class);
+        } catch (Exception e) {
+            logger.warn("Could not release upload slot {}: {}", publicId, e.getMessage());
+        }
+    }
+
+    // Deletes uploads whose signature expired without the file ever being referenced
+    @Scheduled(fixedDelayString = "${app.upload.direct.sweep-interval-ms:300000}")
+    public void sweepUnreferenced() {
+        Query expired = Query.query(where("expiresAt").lte(new Date(System.currentTimeMillis() - sweepGraceMillis))
+                .and("claimedAt").is(null));
+        for (int i = 0; i < sweepBatchSize; i++) {
+            IssuedUpload stale = mongoOperations.findAndRemove(expired, IssuedUpload.class);
+            if (stale == null) {
+                return;
+            }
+            Target target = Target.valueOf(stale.getTarget());
+            try {
+                for (String type : target.storedTypes) {
+                    delete(stale.getPublicId(), type);
+                }
+            } catch (Exception e) {
+                // put it back so the next sweep retries
+                mongoOperations.save(stale);
+                logger.warn("Could not delete unreferenced upload {}: {}", stale.getPublicId(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // Cloudinary answers "not found" rather than failing when nothing was uploaded
+    private void delete(String publicId, String resourceType) throws Exception {
+        guard.call(ExternalCallGuard.CLOUDINARY, () -> cloudinary.uploader()
+                .destroy(publicId, ObjectUtils.asMap("resource_type", resourceType, "invalidate", true)));
+    }
+
+    // claimed slots are excluded so one stuck on a failed consume does not hold the issuer's quota
+    private static Query issuedTo(Target target, String issuer) {
+        return Query.query(where("target").is(target.name()).and("issuer").is(issuer).and("claimedAt").is(null));
+    }
+
+    private static Query slot(Target target, String publicId, String issuer) {
+        return Query.query(where("publicId").is(publicId)
+                .and("target").is(target.name())
+                .and("issuer").is(issuer));
+    }
+
+    private static Query unclaimed(Target target, String publicId, String issuer) {
+        return Query.query(where("publicId").is(publicId)
+                .and("target").is(target.name())
+                .and("issuer").is(issuer)
+                .and("claimedAt").is(null));
+    }
+
+    private long maxBytes(Target target) {
+        return target == Target.PROFILE ? profileMaxBytes : contactMaxBytes;
+    }
+}
@@ -0,0 +1,31 @@
+package com.alcw.service;
+
+// Attachment handed to an EmailTransport: raw bytes, base64 content, or a public URL
+public class EmailAttachment {
+    private final String name;
+    private final byte[] content;      // raw bytes preferred
+    private final String base64String; // alternative
+    private final String url;          // optional public URL
+
+    public EmailAttachment(String name, byte[] content, String base64String, String url) {
+        this.name = name;
+        this.content = content;
+        this.base64String = base64String;
+        this.url = url;
+    }
+
+    public String getName() { return name; }
+    public byte[] getContent() { return content; }
+    public String getBase64String() { return base64String; }
+    public String getUrl() { return url; }
+
+    public static EmailAttachment fromBytes(String name, byte[] content) {
+        return new EmailAttachment(name, content, null, null);
+    }
+    public static EmailAttachment fromBase64(String name, String base64) {
+        return new EmailAttachment(name, null, base64, null);
+    }
+    public static EmailAttachment fromUrl(String name, String url) {
+        return new EmailAttachment(name, null, null, url);
+    }
+}
@@ -0,0 +1,150 @@
+package com.alcw.service;
+
+import com.alcw.model.EmailOutboxMessage;
+import com.alcw.util.UrlFetcher;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns the attachment references stored on outbox messages into Brevo attachments at
+ * send time. A contact-form file goes out in both the confirmation and the admin email, so
+ * each URL is resolved once and the result (name, and bytes when a download was needed) is
+ * cached for a short time. Files above the size limit are not attached; the emails link to
+ * them instead.
+ */
+@Component
+public class EmailAttachmentResolver {
+    private static final Logger logger = LoggerFactory.getLogger(EmailAttachmentResolver.class);
+
+    private final StaticAttachmentRegistry staticAttachments;
+    private final EmailTransport emailTransport;
+    private final UrlFetcher urlFetcher;
+    private final long maxAttachmentBytes;
+    private final Cache<String, ResolvedUrl> resolvedUrls;
+
+    public EmailAttachmentResolver(StaticAttachmentRegistry staticAttachments,
+                                   EmailTransport emailTransport,
+                                   UrlFetcher urlFetcher,
+                                   @Value("${app.email.attachments.max-bytes:10485760}") long maxAttachmentBytes,
+                                   @Value("${app.email.attachments.cache-max-bytes:52428800}") long cacheMaxBytes,
+                                   @Value("${app.email.attachments.cache-ttl-seconds:900}") long cacheTtlSeconds) {
+        this.staticAttachments = staticAttachments;
+        this.emailTransport = emailTransport;
+        this.urlFetcher = urlFetcher;
+        this.maxAttachmentBytes = maxAttachmentBytes;
+        this.resolvedUrls = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String url, ResolvedUrl resolved) -> resolved.weight())
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .build();
+    }
+
+    // Returns null when the attachment cannot be produced; the email is then sent without it
+    public EmailAttachment resolve(EmailOutboxMessage.AttachmentRef ref) {
+        if (ref.getStaticKey() != null) {
+            return staticAttachments.get(ref.getStaticKey());
+        }
+        if (ref.getUrl() != null && !ref.getUrl().isBlank()) {
+            // concurrent workers asking for the same URL wait for a single fetch
+            ResolvedUrl resolved = resolvedUrls.get(ref.getUrl(), this::resolveUrl);
+            return resolved == null ? null : resolved.attachment();
+        }
+        return null;
+    }
+
+    // Null results (fetch failures) are not cached, so the next message tries again
+    private ResolvedUrl resolveUrl(String fileUrl) {
+        try {
+            String filename = deriveFilenameFromUrl(fileUrl);
+            UrlFetcher.UrlInfo info = headOrUnknown(fileUrl);
+            if (info.contentLength() > maxAttachmentBytes) {
+                logger.info("File at {} is {} bytes, linking instead of attaching", fileUrl, info.contentLength());
+                return ResolvedUrl.LINK_ONLY;
+            }
+
+            String name = filename;
+            if (name == null || !name.contains(".")) {
+                String ext = detectExtensionFromContentType(info.contentType());
+                name = (filename != null ? filename : "attachment") + "." + (ext != null ? ext : "bin");
+            }
+
+            // the transport can pass the URL on; only download the file when it cannot
+            if (emailTransport.supportsUrlAttachments() && info.contentLength() >= 0) {
+                return new ResolvedUrl(EmailAttachment.fromUrl(name, fileUrl), 0);
+            }
+            byte[] bytes = urlFetcher.fetch(fileUrl, maxAttachmentBytes);
+            if (bytes == null) {
+                logger.info("File at {} exceeds {} bytes, linking instead of attaching", fileUrl, maxAttachmentBytes);
+                return ResolvedUrl.LINK_ONLY;
+            }
+            return new ResolvedUrl(EmailAttachment.fromBytes(name, bytes), bytes.length);
+        } catch (Exception e) {
+            logger.warn("Failed to create attachment from URL {}: {}", fileUrl, e.getMessage());
+            return null;
+        }
+    }
+
+    private UrlFetcher.UrlInfo headOrUnknown(String fileUrl) {
+        try {
+            return urlFetcher.head(fileUrl);
+        } catch (Exception e) {
+            logger.debug("HEAD failed for {}: {}", fileUrl, e.getMessage());
+            return new UrlFetcher.UrlInfo(null, -1);
+        }
+    }
+
+    private String deriveFilenameFromUrl(String rawUrl) {
+        try {
+            // Remove query and fragment
+            URL url = new URL(rawUrl);
+            String path = url.getPath(); // already decoded by URL
+            if (path == null || path.isEmpty()) return null;
+            String lastSegment = path.substring(path.lastIndexOf('/') + 1);
+            // decode percent-encoding
+            lastSegment = URLDecoder.decode(lastSegment, StandardCharsets.UTF_8);
+            if (lastSegment.isBlank()) return null;
+            return lastSegment;
+        } catch (Exception e) {
+            logger.debug("deriveFilenameFromUrl failed for {}: {}", rawUrl, e.getMessage());
+            return null;
+        }
+    }
+
+    // map common content-types to extensions
+    private static final Map<String,String> COMMON_CT_TO_EXT = new HashMap<>();
+    static {
+        COMMON_CT_TO_EXT.put("application/pdf","pdf");
+        COMMON_CT_TO_EXT.put("image/jpeg","jpg");
+        COMMON_CT_TO_EXT.put("image/jpg","jpg");
+        COMMON_CT_TO_EXT.put("image/png","png");
+        COMMON_CT_TO_EXT.put("image/gif","gif");
+        COMMON_CT_TO_EXT.put("application/zip","zip");
+        COMMON_CT_TO_EXT.put("text/plain","txt");
+        // add more if you need
+    }
+
+    private String detectExtensionFromContentType(String contentType) {
+        if (contentType == null) return null;
+        return COMMON_CT_TO_EXT.get(contentType.toLowerCase());
+    }
+
+    // attachment is null for files that are only linked
+    private record ResolvedUrl(EmailAttachment attachment, int sizeBytes) {
+        static final ResolvedUrl LINK_ONLY = new ResolvedUrl(null, 0);
+
+        int weight() {
+            return Math.max(1, sizeBytes);
+        }
+    }
+}
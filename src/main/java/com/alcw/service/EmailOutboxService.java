@@ -0,0 +1,55 @@
+package com.alcw.service;
+
+import com.alcw.model.EmailOutboxMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Entry point for outgoing email. Messages are stored in the {@code email_outbox} collection
+ * and delivered by {@link EmailOutboxWorker}, so request threads never wait on Brevo.
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    private final MongoOperations mongoOperations;
+
+    public EmailOutboxService(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    public EmailOutboxMessage enqueue(String to, String subject, String htmlContent,
+                                      List<EmailOutboxMessage.AttachmentRef> attachments) {
+        return enqueue(to, subject, htmlContent, attachments, null);
+    }
+
+    /**
+     * Queues a message that is only worth delivering for {@code validFor}, e.g. one carrying
+     * an OTP or reset link. Once that passes it goes to DEAD without being sent.
+     */
+    public EmailOutboxMessage enqueue(String to, String subject, String htmlContent,
+                                      List<EmailOutboxMessage.AttachmentRef> attachments, Duration validFor) {
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setHtmlContent(htmlContent);
+        if (attachments != null) {
+            message.getAttachments().addAll(attachments);
+        }
+        message.setNextAttemptAt(new Date());
+        if (validFor != null) {
+            message.setExpiresAt(new Date(System.currentTimeMillis() + validFor.toMillis()));
+        }
+
+        EmailOutboxMessage saved = mongoOperations.insert(message);
+        logger.info("Queued email '{}' to {} as {}", subject, to, saved.getId());
+        return saved;
+    }
+}
@@ -0,0 +1,212 @@
+package com.alcw.service;
+
+import com.alcw.exception.EmailTransportException;
+import com.alcw.model.EmailOutboxMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Drains the email outbox. Each message is claimed with a lease through a single
+ * findAndModify, so several instances can poll the same collection. Rate limits (429),
+ * server errors and transport failures are retried with exponential backoff; other errors,
+ * or running out of attempts, move the message to {@code DEAD} for inspection. The body is
+ * cleared once a message is {@code SENT} or {@code DEAD}, so codes and links do not linger.
+ * Delivery is at-least-once: a worker that dies mid-send leaves a lease that expires and
+ * the message is sent again, up to the attempt limit. Messages past their own deadline
+ * (OTP and reset emails) go to {@code DEAD} instead of being sent late.
+ */
+@Component
+public class EmailOutboxWorker implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxWorker.class);
+
+    private final MongoOperations mongoOperations;
+    private final EmailTransport emailTransport;
+    private final EmailAttachmentResolver attachmentResolver;
+    private final ExecutorService executor;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final int workers;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final long leaseMillis;
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter deadCounter;
+
+    public EmailOutboxWorker(MongoOperations mongoOperations,
+                             EmailTransport emailTransport,
+                             EmailAttachmentResolver attachmentResolver,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.email-outbox.workers:4}") int workers,
+                             @Value("${app.email-outbox.max-attempts:8}") int maxAttempts,
+                             @Value("${app.email-outbox.initial-backoff-ms:5000}") long initialBackoffMillis,
+                             @Value("${app.email-outbox.max-backoff-ms:1800000}") long maxBackoffMillis,
+                             @Value("${app.email-outbox.lease-ms:120000}") long leaseMillis) {
+        this.mongoOperations = mongoOperations;
+        this.emailTransport = emailTransport;
+        this.attachmentResolver = attachmentResolver;
+        this.workers = workers;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.leaseMillis = leaseMillis;
+        this.executor = Executors.newFixedThreadPool(workers, new CustomizableThreadFactory("email-outbox-"));
+
+        this.sentCounter = outcomeCounter(meterRegistry, "sent");
+        this.retriedCounter = outcomeCounter(meterRegistry, "retried");
+        this.deadCounter = outcomeCounter(meterRegistry, "dead");
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("email.outbox.deliveries")
+                .description("Outbox delivery attempts by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    // Claims only as many messages as there are idle workers
+    @Scheduled(fixedDelayString = "${app.email-outbox.poll-interval-ms:2000}")
+    public void poll() {
+        while (inFlight.get() < workers) {
+            EmailOutboxMessage message;
+            try {
+                message = claimNext();
+            } catch (Exception ex) {
+                logger.warn("Could not poll email outbox: {}", ex.getMessage());
+                return;
+            }
+            if (message == null) {
+                return;
+            }
+
+            inFlight.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    deliver(message);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private EmailOutboxMessage claimNext() {
+        Date now = new Date();
+        Query query = Query.query(new Criteria().orOperator(
+                        where("status").is(EmailOutboxMessage.Status.PENDING).and("nextAttemptAt").lte(now),
+                        where("status").is(EmailOutboxMessage.Status.SENDING).and("lockedUntil").lte(now)))
+                .with(Sort.by("nextAttemptAt"));
+        Update update = new Update()
+                .set("status", EmailOutboxMessage.Status.SENDING)
+                .set("lockedUntil", new Date(now.getTime() + leaseMillis))
+                .inc("attempts", 1);
+        return mongoOperations.findAndModify(query, update, options().returnNew(true), EmailOutboxMessage.class);
+    }
+
+    private void deliver(EmailOutboxMessage message) {
+        // attempts was bumped by the claim, so a message whose lease keeps expiring ends up here too
+        if (message.getAttempts() > maxAttempts) {
+            onFailure(message, false, 0, "Gave up after " + maxAttempts + " attempts");
+            return;
+        }
+        if (isExpired(message, System.currentTimeMillis())) {
+            onFailure(message, false, 0, "Expired before it could be delivered");
+            return;
+        }
+
+        List<EmailAttachment> attachments = new ArrayList<>();
+        for (EmailOutboxMessage.AttachmentRef ref : message.getAttachments()) {
+            EmailAttachment attachment = attachmentResolver.resolve(ref);
+            if (attachment != null) {
+                attachments.add(attachment);
+            } else {
+                logger.warn("Sending outbox message {} without attachment {}", message.getId(), ref);
+            }
+        }
+
+        try {
+            emailTransport.send(message.getTo(), message.getSubject(), message.getHtmlContent(), attachments);
+            markSent(message);
+        } catch (EmailTransportException ex) {
+            onFailure(message, ex.isRetryable(), ex.getRetryAfterMillis(), ex.getMessage());
+        } catch (Exception ex) {
+            // circuit open, bulkhead full or an unexpected error: try again later
+            onFailure(message, true, 0, ex.getMessage());
+        }
+    }
+
+    private void markSent(EmailOutboxMessage message) {
+        mongoOperations.updateFirst(
+                Query.query(where("id").is(message.getId())),
+                new Update()
+                        .set("status", EmailOutboxMessage.Status.SENT)
+                        .set("sentAt", new Date())
+                        .unset("htmlContent")
+                        .unset("lockedUntil")
+                        .unset("lastError"),
+                EmailOutboxMessage.class);
+        sentCounter.increment();
+    }
+
+    private void onFailure(EmailOutboxMessage message, boolean retryable, long retryAfterMillis, String error) {
+        Update update = new Update().unset("lockedUntil").set("lastError", error);
+
+        long delay = Math.max(retryAfterMillis, backoffMillis(message.getAttempts()));
+        if (retryable && message.getAttempts() < maxAttempts
+                && !isExpired(message, System.currentTimeMillis() + delay)) {
+            update.set("status", EmailOutboxMessage.Status.PENDING)
+                    .set("nextAttemptAt", new Date(System.currentTimeMillis() + delay));
+            retriedCounter.increment();
+            logger.warn("Email {} to {} failed (attempt {}), retrying in {} ms: {}",
+                    message.getId(), message.getTo(), message.getAttempts(), delay, error);
+        } else {
+            update.set("status", EmailOutboxMessage.Status.DEAD)
+                    .set("deadAt", new Date())
+                    .unset("htmlContent");
+            deadCounter.increment();
+            logger.error("Email {} to {} moved to dead letter after {} attempts: {}",
+                    message.getId(), message.getTo(), message.getAttempts(), error);
+        }
+        mongoOperations.updateFirst(Query.query(where("id").is(message.getId())), update, EmailOutboxMessage.class);
+    }
+
+    private static boolean isExpired(EmailOutboxMessage message, long at) {
+        return message.getExpiresAt() != null && message.getExpiresAt().getTime() <= at;
+    }
+
+    // Exponential with jitter, so messages throttled together do not retry together
+    private long backoffMillis(int attempts) {
+        long base = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempts - 1, 20));
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    @Override
+    public void destroy() {
+        // unfinished messages keep their lease and are picked up again after it expires
+        executor.shutdown();
+    }
+}
@@ -10,4 +10,5 @@ public interface EmailService {
     void sendUserConfirmation(String email, String name, ContactSubmission.ContactSubject subject, String fileUrl);
     void sendAdminNotification(String adminEmail, String name, String userEmail,
                                ContactSubmission.ContactSubject subject, String message, String fileUrl);
+    void sendPasswordResetEmail(String email, String resetLink);
 }
@@ -0,0 +1,18 @@
+package com.alcw.service;
+
+import java.util.List;
+
+/**
+ * Delivers one rendered email. {@link BrevoEmailClient} is the production transport; the
+ * {@code email-memory} and {@code email-file} profiles swap in local sinks for load tests.
+ */
+public interface EmailTransport {
+
+    // Failures are reported as EmailTransportException, which tells the outbox whether to retry
+    void send(String to, String subject, String htmlContent, List<EmailAttachment> attachments);
+
+    // Whether URL attachments can be passed through without downloading them first
+    default boolean supportsUrlAttachments() {
+        return false;
+    }
+}
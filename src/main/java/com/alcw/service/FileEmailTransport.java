@@ -0,0 +1,83 @@
+package com.alcw.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends every email as one JSON line to a local file instead of sending it
+ * ({@code email-file} profile). Attachment bodies are not written, only their name, size
+ * and URL.
+ */
+@Component
+@Profile("email-file")
+public class FileEmailTransport extends SimulatedEmailTransport implements DisposableBean {
+
+    private final ObjectMapper objectMapper;
+    private final BufferedWriter writer;
+
+    public FileEmailTransport(MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                              @Value("${app.email.sink.file:emails.ndjson}") String file) throws IOException {
+        super(meterRegistry, "file");
+        this.objectMapper = objectMapper;
+        Path path = Path.of(file).toAbsolutePath();
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    protected void record(String to, String subject, String htmlContent, List<EmailAttachment> attachments) {
+        List<Map<String, Object>> attachmentInfo = new ArrayList<>(attachments.size());
+        for (EmailAttachment attachment : attachments) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("name", attachment.getName());
+            info.put("bytes", attachment.getContent() != null ? attachment.getContent().length : null);
+            info.put("url", attachment.getUrl());
+            attachmentInfo.add(info);
+        }
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("sentAt", Instant.now().toString());
+        line.put("to", to);
+        line.put("subject", subject);
+        line.put("html", htmlContent);
+        line.put("attachments", attachmentInfo);
+
+        try {
+            String json = objectMapper.writeValueAsString(line);
+            synchronized (writer) {
+                writer.write(json);
+                writer.newLine();
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        synchronized (writer) {
+            writer.close();
+        }
+    }
+}
@@ -1,24 +1,48 @@
 package com.alcw.service;
 
+import com.alcw.util.ExternalCallGuard;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpRequestInitializer;
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.model.ValueRange;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
-import lombok.SneakyThrows;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import java.io.ByteArrayInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Appends contact rows to the spreadsheet. The Sheets client and its credentials are built
+ * once, so the OAuth token is reused and refreshed only when it expires. Rows are buffered
+ * and written in appends of at most {@code batch-size} rows, triggered by a full batch or
+ * every {@code flush-interval-ms}, and once more on shutdown. Appends always run on the
+ * scheduler or a dedicated flush thread, never on the caller's thread.
+ */
 @Service
 public class GoogleSheetsServiceImpl implements GoogleSheetsService {
 
+    private static final Logger logger = LoggerFactory.getLogger(GoogleSheetsServiceImpl.class);
+
     private static final String APPLICATION_NAME = "ALC Contact Form";
     private static final com.google.api.client.json.JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
     private static final List<String> SCOPES = Collections.singletonList("https://www.googleapis.com/auth/spreadsheets");
@@ -32,20 +56,40 @@ public class GoogleSheetsServiceImpl implements GoogleSheetsService {
     @Value("${google.credentials}")
     private String base64Credentials;
 
-    @SneakyThrows
-    @Override
-    public void writeToSheet(String name, String email, String subject, String message, String fileUrl) {
-        final NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+    @Value("${google.sheets.connect-timeout-ms:5000}")
+    private int connectTimeoutMillis;
 
-        // Decode credentials
-        byte[] decodedBytes = Base64.getDecoder().decode(base64Credentials);
-        GoogleCredentials credentials = GoogleCredentials.fromStream(new ByteArrayInputStream(decodedBytes))
-                .createScoped(SCOPES);
+    @Value("${google.sheets.read-timeout-ms:10000}")
+    private int readTimeoutMillis;
 
-        Sheets service = new Sheets.Builder(httpTransport, JSON_FACTORY, new HttpCredentialsAdapter(credentials))
-                .setApplicationName(APPLICATION_NAME)
-                .build();
+    @Value("${google.sheets.batch-size:20}")
+    private int batchSize;
 
+    // Oldest rows are dropped beyond this while Sheets is unreachable
+    @Value("${google.sheets.max-buffered-rows:5000}")
+    private int maxBufferedRows;
+
+    private final ExternalCallGuard guard;
+    private final Counter droppedRows;
+
+    private final Deque<List<Object>> pendingRows = new ArrayDeque<>();
+    private final Object flushLock = new Object();
+    private volatile Sheets sheets;
+
+    // a full batch wakes this thread; at most one wake-up is queued at a time
+    private final ExecutorService flusher =
+            Executors.newSingleThreadExecutor(new CustomizableThreadFactory("sheets-flush-"));
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    public GoogleSheetsServiceImpl(ExternalCallGuard guard, MeterRegistry meterRegistry) {
+        this.guard = guard;
+        this.droppedRows = Counter.builder("google.sheets.rows.dropped")
+                .description("Contact rows dropped because the Sheets buffer was full")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void writeToSheet(String name, String email, String subject, String message, String fileUrl) {
         // Prepare data
         List<Object> rowData = List.of(
                 new Date().toString(),
@@ -56,13 +100,122 @@ public class GoogleSheetsServiceImpl implements GoogleSheetsService {
                 fileUrl != null ? fileUrl : "N/A"
         );
 
-        ValueRange body = new ValueRange()
-                .setValues(Collections.singletonList(rowData));
+        boolean batchFull;
+        synchronized (pendingRows) {
+            pendingRows.addLast(rowData);
+            trimToCapacity();
+            batchFull = pendingRows.size() >= batchSize;
+        }
+        if (batchFull && flushQueued.compareAndSet(false, true)) {
+            try {
+                flusher.execute(() -> {
+                    flushQueued.set(false);
+                    flush();
+                });
+            } catch (RejectedExecutionException ex) {
+                // shutting down; the final flush picks the rows up
+                flushQueued.set(false);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${google.sheets.flush-interval-ms:5000}")
+    public void flush() {
+        synchronized (flushLock) {
+            // drain in batchSize appends, stopping at the first failure (that batch is requeued)
+            boolean appended = true;
+            while (appended) {
+                appended = appendNextBatch();
+            }
+        }
+    }
+
+    // Appends up to batchSize rows; false when the buffer is empty or the append failed
+    private boolean appendNextBatch() {
+        List<List<Object>> batch;
+        synchronized (pendingRows) {
+            if (pendingRows.isEmpty()) {
+                return false;
+            }
+            int size = Math.min(batchSize, pendingRows.size());
+            batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(pendingRows.removeFirst());
+            }
+        }
+
+        try {
+            ValueRange body = new ValueRange().setValues(batch);
+            Sheets service = sheets();
+            guard.call(ExternalCallGuard.GOOGLE_SHEETS, () -> service.spreadsheets().values()
+                    .append(spreadsheetId, range, body)
+                    .setValueInputOption("USER_ENTERED")
+                    .execute());
+            logger.debug("Appended {} contact rows to Google Sheets", batch.size());
+            return true;
+        } catch (Exception ex) {
+            logger.warn("Failed to append {} rows to Google Sheets, will retry: {}", batch.size(), ex.getMessage());
+            synchronized (pendingRows) {
+                // put the batch back ahead of rows that arrived meanwhile
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    pendingRows.addFirst(batch.get(i));
+                }
+                trimToCapacity();
+            }
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flusher.shutdown();
+        flush();
+    }
+
+    // Rows hold names, emails and messages, so only the count is logged
+    private void trimToCapacity() {
+        int dropped = 0;
+        while (pendingRows.size() > maxBufferedRows) {
+            pendingRows.removeFirst();
+            dropped++;
+        }
+        if (dropped > 0) {
+            droppedRows.increment(dropped);
+            logger.error("Sheets buffer full, dropped {} contact rows", dropped);
+        }
+    }
+
+    private Sheets sheets() throws Exception {
+        Sheets service = sheets;
+        if (service == null) {
+            synchronized (this) {
+                service = sheets;
+                if (service == null) {
+                    service = buildSheets();
+                    sheets = service;
+                }
+            }
+        }
+        return service;
+    }
 
-        // Write to sheet
-        service.spreadsheets().values()
-                .append(spreadsheetId, range, body)
-                .setValueInputOption("USER_ENTERED")
-                .execute();
+    private Sheets buildSheets() throws Exception {
+        final NetHttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+
+        // Decode credentials
+        byte[] decodedBytes = Base64.getDecoder().decode(base64Credentials);
+        GoogleCredentials credentials = GoogleCredentials.fromStream(new ByteArrayInputStream(decodedBytes))
+                .createScoped(SCOPES);
+
+        HttpCredentialsAdapter credentialsAdapter = new HttpCredentialsAdapter(credentials);
+        HttpRequestInitializer requestInitializer = request -> {
+            credentialsAdapter.initialize(request);
+            request.setConnectTimeout(connectTimeoutMillis);
+            request.setReadTimeout(readTimeoutMillis);
+        };
+
+        return new Sheets.Builder(httpTransport, JSON_FACTORY, requestInitializer)
+                .setApplicationName(APPLICATION_NAME)
+                .build();
     }
-}
\ No newline at end of file
+}
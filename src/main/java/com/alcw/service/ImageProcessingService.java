@@ -0,0 +1,258 @@
+package com.alcw.service;
+
+import com.alcw.exception.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Downscales uploaded images and re-encodes them as JPEG before they go to Cloudinary.
+ * Only the pixels are copied onto a fresh RGB canvas, so EXIF and other metadata are dropped;
+ * the EXIF orientation is applied first so phone photos keep their rotation. Decoding runs on
+ * a small bounded pool because a full-size photo can take tens of megabytes of heap.
+ */
+@Service
+public class ImageProcessingService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageProcessingService.class);
+
+    // EXIF lives in APP1 near the start of the file, so the orientation is read from this prefix
+    private static final int EXIF_SCAN_BYTES = 64 * 1024;
+
+    private final ThreadPoolExecutor executor;
+
+    @Value("${app.image.max-dimension:512}")
+    private int maxDimension;
+
+    @Value("${app.image.jpeg-quality:0.85}")
+    private float jpegQuality;
+
+    @Value("${app.image.max-source-pixels:40000000}")
+    private long maxSourcePixels;
+
+    @Value("${app.image.timeout-ms:10000}")
+    private long timeoutMillis;
+
+    public ImageProcessingService(@Value("${app.image.threads:2}") int threads,
+                                  @Value("${app.image.queue-capacity:16}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("image-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Returns the image as a JPEG no larger than the configured dimension, or null when it
+     * cannot be decoded (WebP, HEIC, corrupt or oversized). The caller must then upload the
+     * original through an incoming transformation that strips metadata and bounds the size.
+     */
+    public byte[] toBoundedJpeg(MultipartFile image) {
+        Future<byte[]> result;
+        try {
+            result = executor.submit(() -> process(image));
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many images being processed, please try again shortly");
+        }
+
+        try {
+            return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new ServiceUnavailableException("Image processing timed out, please try again shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new ServiceUnavailableException("Image processing was interrupted");
+        } catch (ExecutionException e) {
+            logger.warn("Could not process image {}, leaving it to Cloudinary: {}",
+                    image.getOriginalFilename(), e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    private byte[] process(MultipartFile image) throws IOException {
+        int orientation;
+        try (InputStream in = image.getInputStream()) {
+            orientation = exifOrientation(in.readNBytes(EXIF_SCAN_BYTES));
+        }
+
+        BufferedImage source;
+        try (InputStream in = image.getInputStream();
+             ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            source = decode(imageIn);
+        }
+        if (source == null) {
+            return null;
+        }
+        return encodeJpeg(render(source, orientation));
+    }
+
+    private BufferedImage decode(ImageInputStream imageIn) throws IOException {
+        Iterator<ImageReader> readers = imageIn == null ? null : ImageIO.getImageReaders(imageIn);
+        if (readers == null || !readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(imageIn, true, true);
+            int width = reader.getWidth(0);
+            int height = reader.getHeight(0);
+            // header-only check, so a small file claiming huge dimensions is never decoded
+            if ((long) width * height > maxSourcePixels) {
+                logger.warn("Image is {}x{}, above the decode limit; leaving it to Cloudinary", width, height);
+                return null;
+            }
+            // skip pixels while decoding so the in-memory image is at most about twice the target
+            int step = Math.max(1, Math.max(width, height) / (maxDimension * 2));
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceSubsampling(step, step, 0, 0);
+            return reader.read(0, param);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    private BufferedImage render(BufferedImage source, int orientation) {
+        // 5 to 8 are quarter turns (5 and 7 also mirrored), so width and height swap
+        boolean swap = orientation >= 5 && orientation <= 8;
+        int orientedWidth = swap ? source.getHeight() : source.getWidth();
+        int orientedHeight = swap ? source.getWidth() : source.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(orientedWidth, orientedHeight));
+        int width = Math.max(1, (int) Math.round(orientedWidth * scale));
+        int height = Math.max(1, (int) Math.round(orientedHeight * scale));
+
+        // maps the scaled source onto the upright target; arguments are m00, m10, m01, m11, m02, m12
+        AffineTransform transform = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, width, 0);
+            case 3 -> new AffineTransform(-1, 0, 0, -1, width, height);
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, height);
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0);
+            case 6 -> new AffineTransform(0, 1, -1, 0, width, 0);
+            case 7 -> new AffineTransform(0, -1, -1, 0, width, height);
+            case 8 -> new AffineTransform(0, -1, 1, 0, 0, height);
+            default -> new AffineTransform();
+        };
+        transform.scale(scale, scale);
+
+        // JPEG has no alpha, so transparent areas are flattened onto white
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, transform, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    // Walks the JPEG segments to the EXIF block and reads tag 0x0112 from IFD0; 1 means upright
+    static int exifOrientation(byte[] b) {
+        if (b.length < 4 || (b[0] & 0xFF) != 0xFF || (b[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int pos = 2;
+        while (pos + 4 <= b.length && (b[pos] & 0xFF) == 0xFF) {
+            int marker = b[pos + 1] & 0xFF;
+            int length = u16(b, pos + 2, false);
+            if (marker == 0xDA) {
+                break; // start of scan, no more metadata segments
+            }
+            int segmentEnd = Math.min(b.length, pos + 2 + length);
+            if (marker == 0xE1 && pos + 10 <= segmentEnd
+                    && b[pos + 4] == 'E' && b[pos + 5] == 'x' && b[pos + 6] == 'i' && b[pos + 7] == 'f') {
+                return tiffOrientation(b, pos + 10, segmentEnd);
+            }
+            pos += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int tiffOrientation(byte[] b, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return 1;
+        }
+        boolean little = b[tiff] == 'I';
+        long ifdOffset = little
+                ? (u16(b, tiff + 4, true) | ((long) u16(b, tiff + 6, true) << 16))
+                : (((long) u16(b, tiff + 4, false) << 16) | u16(b, tiff + 6, false));
+        long ifd = tiff + ifdOffset;
+        if (ifd + 2 > end) {
+            return 1;
+        }
+        int count = u16(b, (int) ifd, little);
+        for (int i = 0; i < count; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (u16(b, entry, little) == 0x0112) {
+                return u16(b, entry + 8, little);
+            }
+        }
+        return 1;
+    }
+
+    private static int u16(byte[] b, int pos, boolean littleEndian) {
+        int first = b[pos] & 0xFF;
+        int second = b[pos + 1] & 0xFF;
+        return littleEndian ? (second << 8) | first : (first << 8) | second;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
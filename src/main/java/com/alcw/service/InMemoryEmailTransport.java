@@ -0,0 +1,60 @@
+package com.alcw.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent emails in memory instead of sending them ({@code email-memory}
+ * profile). Older entries are dropped once the retention limit is reached.
+ */
+@Component
+@Profile("email-memory")
+public class InMemoryEmailTransport extends SimulatedEmailTransport {
+
+    public record SentEmail(Instant sentAt, String to, String subject, String htmlContent, List<String> attachmentNames) {
+    }
+
+    private final Deque<SentEmail> sent = new ArrayDeque<>();
+    private final int retain;
+
+    public InMemoryEmailTransport(MeterRegistry meterRegistry,
+                                  @Value("${app.email.sink.memory.retain:1000}") int retain) {
+        super(meterRegistry, "memory");
+        this.retain = retain;
+    }
+
+    @Override
+    protected void record(String to, String subject, String htmlContent, List<EmailAttachment> attachments) {
+        List<String> names = new ArrayList<>(attachments.size());
+        for (EmailAttachment attachment : attachments) {
+            names.add(attachment.getName());
+        }
+        SentEmail email = new SentEmail(Instant.now(), to, subject, htmlContent, names);
+        synchronized (sent) {
+            if (sent.size() >= retain) {
+                sent.removeFirst();
+            }
+            sent.addLast(email);
+        }
+    }
+
+    public List<SentEmail> getSent() {
+        synchronized (sent) {
+            return new ArrayList<>(sent);
+        }
+    }
+
+    public void clear() {
+        synchronized (sent) {
+            sent.clear();
+        }
+    }
+}
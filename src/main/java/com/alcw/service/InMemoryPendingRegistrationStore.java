@@ -0,0 +1,40 @@
+package com.alcw.service;
+
+import com.alcw.model.PendingRegistration;
+import com.alcw.util.CacheExpiry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+@Service
+@ConditionalOnProperty(name = "app.registration.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryPendingRegistrationStore implements PendingRegistrationStore {
+
+    private final Cache<String, PendingRegistration> registrations;
+
+    public InMemoryPendingRegistrationStore(@Value("${app.registration.max-pending:10000}") long maxPending) {
+        this.registrations = Caffeine.newBuilder()
+                .maximumSize(maxPending)
+                .expireAfter(CacheExpiry.<String, PendingRegistration>atDeadline(
+                        registration -> registration.getExpiresAt().getTime()))
+                .build();
+    }
+
+    @Override
+    public void save(PendingRegistration registration) {
+        registrations.put(registration.getEmail(), registration);
+    }
+
+    @Override
+    public PendingRegistration find(String email) {
+        PendingRegistration registration = registrations.getIfPresent(email);
+        return registration == null || registration.isExpired() ? null : registration;
+    }
+
+    @Override
+    public void remove(String email) {
+        registrations.invalidate(email);
+    }
+}
@@ -0,0 +1,136 @@
+package com.alcw.service;
+
+import com.alcw.exception.InvalidCredentialsException;
+import com.alcw.exception.TooManyRequestsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Sliding-window limit on failed logins, keyed by account (email, patron ID or admin
+ * username) and by client IP. Over-limit attempts are rejected before the login service
+ * runs, so credential stuffing cannot turn into a Mongo read plus a BCrypt check per try.
+ * Memory is bounded by a maximum number of tracked keys, and each key has its own lock.
+ */
+@Service
+public class LoginThrottleService {
+
+    private final Cache<String, SlidingWindowCounter> counters;
+    private final int maxFailuresPerAccount;
+    private final int maxFailuresPerIp;
+    private final long windowMillis;
+
+    public LoginThrottleService(@Value("${security.login-throttle.max-failures-per-account:5}") int maxFailuresPerAccount,
+                                @Value("${security.login-throttle.max-failures-per-ip:20}") int maxFailuresPerIp,
+                                @Value("${security.login-throttle.window-seconds:900}") long windowSeconds,
+                                @Value("${security.login-throttle.max-tracked-keys:100000}") long maxTrackedKeys) {
+        this.maxFailuresPerAccount = maxFailuresPerAccount;
+        this.maxFailuresPerIp = maxFailuresPerIp;
+        this.windowMillis = Duration.ofSeconds(windowSeconds).toMillis();
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxTrackedKeys)
+                .expireAfterAccess(Duration.ofMillis(windowMillis * 2))
+                .build();
+    }
+
+    public static String emailKey(String email) {
+        return "email:" + (email == null ? "" : email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public static String patronKey(String patronId) {
+        return "patron:" + (patronId == null ? "" : patronId.trim().toUpperCase(Locale.ROOT));
+    }
+
+    public static String adminKey(String username) {
+        return "admin:" + (username == null ? "" : username.trim());
+    }
+
+    /**
+     * Runs the login attempt unless the account or IP is over its limit. Each attempt takes a
+     * slot from both counters before the password check runs, so parallel guesses cannot all
+     * pass the check; a success gives the slots back and clears the account's counter.
+     */
+    public <T> T attempt(String clientIp, String accountKey, Supplier<T> login) {
+        String ipKey = "ip:" + clientIp;
+        long now = System.currentTimeMillis();
+        SlidingWindowCounter account = counters.get(accountKey, k -> new SlidingWindowCounter(now));
+        SlidingWindowCounter ip = counters.get(ipKey, k -> new SlidingWindowCounter(now));
+
+        if (!account.tryAcquire(now, windowMillis, maxFailuresPerAccount)) {
+            throw tooManyAttempts();
+        }
+        if (!ip.tryAcquire(now, windowMillis, maxFailuresPerIp)) {
+            account.release();
+            throw tooManyAttempts();
+        }
+
+        T result;
+        try {
+            result = login.get();
+        } catch (InvalidCredentialsException ex) {
+            // the slots taken above stay recorded as failures
+            throw ex;
+        } catch (RuntimeException ex) {
+            account.release();
+            ip.release();
+            throw ex;
+        }
+        ip.release();
+        counters.invalidate(accountKey);
+        return result;
+    }
+
+    private TooManyRequestsException tooManyAttempts() {
+        return new TooManyRequestsException("Too many failed login attempts. Please try again later.",
+                Duration.ofMillis(windowMillis).toSeconds());
+    }
+
+    // Two fixed buckets weighted by overlap, the usual sliding-window approximation
+    static final class SlidingWindowCounter {
+        private long windowStart;
+        private int current;
+        private int previous;
+
+        SlidingWindowCounter(long now) {
+            this.windowStart = now;
+        }
+
+        // Check and increment in one step, so concurrent attempts cannot overshoot the limit
+        synchronized boolean tryAcquire(long now, long windowMillis, int limit) {
+            if (estimate(now, windowMillis) >= limit) {
+                return false;
+            }
+            current++;
+            return true;
+        }
+
+        // Gives back a slot taken by tryAcquire, e.g. after a successful login
+        synchronized void release() {
+            if (current > 0) {
+                current--;
+            } else if (previous > 0) {
+                previous--;
+            }
+        }
+
+        synchronized double estimate(long now, long windowMillis) {
+            roll(now, windowMillis);
+            double elapsedFraction = (double) (now - windowStart) / windowMillis;
+            return previous * (1.0 - elapsedFraction) + current;
+        }
+
+        private void roll(long now, long windowMillis) {
+            long elapsedWindows = (now - windowStart) / windowMillis;
+            if (elapsedWindows > 0) {
+                previous = elapsedWindows == 1 ? current : 0;
+                current = 0;
+                windowStart += elapsedWindows * windowMillis;
+            }
+        }
+    }
+}
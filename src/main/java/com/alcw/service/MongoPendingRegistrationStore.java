@@ -0,0 +1,33 @@
+package com.alcw.service;
+
+import com.alcw.model.PendingRegistration;
+import com.alcw.repository.PendingRegistrationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.registration.store", havingValue = "mongo")
+public class MongoPendingRegistrationStore implements PendingRegistrationStore {
+
+    private final PendingRegistrationRepository pendingRegistrationRepository;
+
+    @Override
+    public void save(PendingRegistration registration) {
+        pendingRegistrationRepository.save(registration);
+    }
+
+    @Override
+    public PendingRegistration find(String email) {
+        // the TTL monitor only runs about once a minute, so check expiry here too
+        return pendingRegistrationRepository.findById(email)
+                .filter(registration -> !registration.isExpired())
+                .orElse(null);
+    }
+
+    @Override
+    public void remove(String email) {
+        pendingRegistrationRepository.deleteById(email);
+    }
+}
@@ -1,13 +1,24 @@
 package com.alcw.service;
 
 
-import com.alcw.dto.UserDTO;
+import com.alcw.model.PendingRegistration;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 
 public interface OTPService {
-    String generateOTP(String email);
+    Issue generateOTP(String email);
     void validateOTP(String email, String otp);
     void clearOTP(String email);
-    void storeUserData(String email, UserDTO userDTO); // New method
-    UserDTO getUserData(String email); // New method
-    void clearUserData(String email); // New method
+    void storePendingRegistration(PendingRegistration registration); // expires together with the OTP
+    PendingRegistration getPendingRegistration(String email);
+    void clearPendingRegistration(String email);
+
+    // Result of generateOTP: a new code to email, or none while the last one is in its cooldown
+    @Getter
+    @AllArgsConstructor
+    class Issue {
+        private final String code;
+        private final boolean fresh;
+        private final long remainingSeconds;
+    }
 }
@@ -1,59 +1,83 @@
 package com.alcw.service;
 
 
-import com.alcw.dto.UserDTO;
 import com.alcw.exception.InvalidCredentialsException;
+import com.alcw.exception.ServiceUnavailableException;
 import com.alcw.model.OTP;
+import com.alcw.model.PendingRegistration;
 import com.alcw.repository.OTPRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Map;
+import java.util.Date;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
+
+import static org.springframework.data.mongodb.core.FindAndModifyOptions.options;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
 
 @Service
 @RequiredArgsConstructor
 public class OTPServiceImpl implements OTPService {
     private final OTPRepository otpRepository;
+    private final MongoOperations mongoOperations;
+    private final PendingRegistrationStore pendingRegistrationStore;
     private static final int OTP_LENGTH = 6;
-    private static final int OTP_EXPIRY_MINUTES = 5;
+    // package-visible so the OTP email can expire with the code
+    static final int OTP_EXPIRY_MINUTES = 5;
 
-    // Temporary storage for user data during OTP verification
-    private final Map<String, UserDTO> userDataStorage = new ConcurrentHashMap<>();
+    @Value("${app.otp.cooldown-seconds:60}")
+    private long cooldownSeconds;
 
     @Override
-    public String generateOTP(String email) {
-        // Clear any existing OTP
-        otpRepository.deleteByEmail(email);
-
-        // Generate new OTP
+    public Issue generateOTP(String email) {
+        LocalDateTime now = LocalDateTime.now();
         String otp = generateRandomOTP();
-        OTP otpEntity = new OTP();
-        otpEntity.setEmail(email);
-        otpEntity.setCode(otp);
-        otpEntity.setExpiryTime(LocalDateTime.now().plusMinutes(OTP_EXPIRY_MINUTES));
 
-        otpRepository.save(otpEntity);
-        return otp;
+        // Only replaces a code that is outside its cooldown or already expired. Otherwise the
+        // upsert collides with the unique email index and the existing code stays in force.
+        try {
+            mongoOperations.findAndModify(
+                    Query.query(where("email").is(email).orOperator(
+                            where("issuedAt").exists(false),
+                            where("issuedAt").lte(now.minusSeconds(cooldownSeconds)),
+                            where("expiryTime").lte(now))),
+                    new Update()
+                            .set("code", otp)
+                            .set("issuedAt", now)
+                            .set("expiryTime", now.plusMinutes(OTP_EXPIRY_MINUTES)),
+                    options().returnNew(true).upsert(true),
+                    OTP.class
+            );
+        } catch (DuplicateKeyException ex) {
+            OTP existing = otpRepository.findByEmail(email).orElse(null);
+            if (existing != null && existing.getExpiryTime().isAfter(now)) {
+                return new Issue(null, false, Duration.between(now, existing.getExpiryTime()).getSeconds());
+            }
+            // removed or expired in the meantime: the next call issues a new code
+            throw new ServiceUnavailableException("OTP is being reissued, please try again");
+        }
+        return new Issue(otp, true, Duration.ofMinutes(OTP_EXPIRY_MINUTES).getSeconds());
     }
 
     @Override
     public void validateOTP(String email, String otp) {
-        OTP otpEntity = otpRepository.findByEmail(email)
-                .orElseThrow(() -> new InvalidCredentialsException("OTP not found or expired"));
-
-        if (!otpEntity.getCode().equals(otp)) {
-            throw new InvalidCredentialsException("Invalid OTP");
-        }
-
-        if (otpEntity.getExpiryTime().isBefore(LocalDateTime.now())) {
-            otpRepository.delete(otpEntity);
-            throw new InvalidCredentialsException("OTP expired");
+        // Matching, unexpired code is consumed in the same round trip
+        OTP otpEntity = mongoOperations.findAndRemove(
+                Query.query(where("email").is(email)
+                        .and("code").is(otp)
+                        .and("expiryTime").gt(LocalDateTime.now())),
+                OTP.class
+        );
+
+        if (otpEntity == null) {
+            throw new InvalidCredentialsException("Invalid or expired OTP");
         }
-
-        // Clear OTP after successful validation
-        otpRepository.delete(otpEntity);
     }
 
     @Override
@@ -62,18 +86,20 @@ public class OTPServiceImpl implements OTPService {
     }
 
     @Override
-    public void storeUserData(String email, UserDTO userDTO) {
-        userDataStorage.put(email, userDTO);
+    public void storePendingRegistration(PendingRegistration registration) {
+        registration.setExpiresAt(new Date(System.currentTimeMillis()
+                + Duration.ofMinutes(OTP_EXPIRY_MINUTES).toMillis()));
+        pendingRegistrationStore.save(registration);
     }
 
     @Override
-    public UserDTO getUserData(String email) {
-        return userDataStorage.get(email);
+    public PendingRegistration getPendingRegistration(String email) {
+        return pendingRegistrationStore.find(email);
     }
 
     @Override
-    public void clearUserData(String email) {
-        userDataStorage.remove(email);
+    public void clearPendingRegistration(String email) {
+        pendingRegistrationStore.remove(email);
     }
 
     private String generateRandomOTP() {
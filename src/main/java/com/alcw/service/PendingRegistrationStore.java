@@ -0,0 +1,15 @@
+package com.alcw.service;
+
+
+import com.alcw.model.PendingRegistration;
+
+/**
+ * Holds registrations between /register and /verify-otp. Entries expire at
+ * {@link PendingRegistration#getExpiresAt()}. Select the implementation with
+ * app.registration.store: memory for a single node, or mongo when running several replicas.
+ */
+public interface PendingRegistrationStore {
+    void save(PendingRegistration registration);
+    PendingRegistration find(String email); // null if absent or expired
+    void remove(String email);
+}
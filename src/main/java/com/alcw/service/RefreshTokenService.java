@@ -0,0 +1,90 @@
+package com.alcw.service;
+
+import com.alcw.dto.TokenRefreshResponse;
+import com.alcw.exception.InvalidCredentialsException;
+import com.alcw.model.RefreshToken;
+import com.alcw.repository.RefreshTokenRepository;
+import com.alcw.util.Hashing;
+import com.alcw.util.JwtUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Opaque, single-use refresh tokens. Only a SHA-256 of each token is stored; redeeming one
+ * atomically removes it and issues a new access/refresh pair, so renewing a session is an
+ * indexed lookup instead of a BCrypt password check.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final MongoOperations mongoOperations;
+    private final UserDetailsService userDetailsService;
+    private final JwtUtil jwtUtil;
+
+    @Value("${jwt.refresh-expiration}")
+    private Long refreshExpiration;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+                               MongoOperations mongoOperations,
+                               UserDetailsService userDetailsService,
+                               JwtUtil jwtUtil) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.mongoOperations = mongoOperations;
+        this.userDetailsService = userDetailsService;
+        this.jwtUtil = jwtUtil;
+    }
+
+    public String issue(String username) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setTokenHash(hash(rawToken));
+        refreshToken.setUsername(username);
+        refreshToken.setExpiresAt(new Date(System.currentTimeMillis() + refreshExpiration));
+        refreshTokenRepository.save(refreshToken);
+        return rawToken;
+    }
+
+    public TokenRefreshResponse rotate(String rawToken) {
+        // findAndRemove makes each refresh token usable exactly once, even under concurrent calls
+        RefreshToken stored = mongoOperations.findAndRemove(
+                Query.query(where("tokenHash").is(hash(rawToken))), RefreshToken.class);
+        if (stored == null || stored.getExpiresAt().before(new Date())) {
+            throw new InvalidCredentialsException("Invalid or expired refresh token");
+        }
+
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(stored.getUsername());
+        } catch (UsernameNotFoundException ex) {
+            throw new InvalidCredentialsException("Invalid or expired refresh token");
+        }
+        return new TokenRefreshResponse(jwtUtil.generateToken(userDetails), issue(stored.getUsername()));
+    }
+
+    public void revoke(String rawToken) {
+        if (rawToken != null && !rawToken.isBlank()) {
+            refreshTokenRepository.deleteByTokenHash(hash(rawToken));
+        }
+    }
+
+    private static String hash(String rawToken) {
+        return Hashing.sha256Hex(rawToken);
+    }
+}
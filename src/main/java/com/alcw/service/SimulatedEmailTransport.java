@@ -0,0 +1,70 @@
+package com.alcw.service;
+
+import com.alcw.exception.EmailTransportException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Base for the offline sinks. Adds configurable latency and a failure rate in front of
+ * {@link #record}, so load tests see provider-like timing and exercise the outbox retries.
+ */
+public abstract class SimulatedEmailTransport implements EmailTransport {
+
+    @Value("${app.email.sink.latency-ms:0}")
+    private long latencyMillis;
+
+    @Value("${app.email.sink.jitter-ms:0}")
+    private long jitterMillis;
+
+    @Value("${app.email.sink.error-rate:0}")
+    private double errorRate;
+
+    @Value("${app.email.sink.error-status:503}")
+    private int errorStatus;
+
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    protected SimulatedEmailTransport(MeterRegistry meterRegistry, String sink) {
+        this.sentCounter = Counter.builder("email.sink.messages")
+                .description("Emails accepted by an offline email sink")
+                .tags("sink", sink, "outcome", "sent")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("email.sink.messages")
+                .description("Emails accepted by an offline email sink")
+                .tags("sink", sink, "outcome", "failed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public final void send(String to, String subject, String htmlContent, List<EmailAttachment> attachments) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EmailTransportException(0, 0, "Interrupted while simulating send", e);
+            }
+        }
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            failedCounter.increment();
+            throw new EmailTransportException(errorStatus, 0, "Simulated email failure (status " + errorStatus + ")");
+        }
+        record(to, subject, htmlContent, attachments);
+        sentCounter.increment();
+    }
+
+    // Nothing is fetched, so URL attachments are kept as references
+    @Override
+    public boolean supportsUrlAttachments() {
+        return true;
+    }
+
+    protected abstract void record(String to, String subject, String htmlContent, List<EmailAttachment> attachments);
+}
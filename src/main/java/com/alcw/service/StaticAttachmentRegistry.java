@@ -0,0 +1,54 @@
+package com.alcw.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Attachments that are the same for every recipient, loaded once at startup. When a public
+ * URL is configured for one, Brevo fetches the file itself and the bytes never pass through
+ * this application.
+ */
+@Component
+public class StaticAttachmentRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(StaticAttachmentRegistry.class);
+
+    public static final String WELCOME_BROCHURE = "welcome-brochure";
+
+    private final Map<String, EmailAttachment> attachments;
+
+    public StaticAttachmentRegistry(@Value("${app.email.brochure-url:}") String brochureUrl) {
+        Map<String, EmailAttachment> loaded = new HashMap<>();
+        register(loaded, WELCOME_BROCHURE, "ALC_Welcome_Brochure.pdf", "/static/docs/ALC_Brochure.pdf", brochureUrl);
+        this.attachments = Map.copyOf(loaded);
+    }
+
+    // Null when the attachment is not available; the email is then sent without it
+    public EmailAttachment get(String key) {
+        return attachments.get(key);
+    }
+
+    private void register(Map<String, EmailAttachment> target, String key, String name,
+                          String classpathLocation, String url) {
+        if (url != null && !url.isBlank()) {
+            target.put(key, EmailAttachment.fromUrl(name, url));
+            return;
+        }
+        try (InputStream is = getClass().getResourceAsStream(classpathLocation)) {
+            if (is == null) {
+                logger.warn("Static attachment {} not found on classpath at {}", key, classpathLocation);
+                return;
+            }
+            byte[] bytes = is.readAllBytes();
+            target.put(key, EmailAttachment.fromBytes(name, bytes));
+            logger.info("Loaded static attachment {} ({} bytes)", key, bytes.length);
+        } catch (Exception ex) {
+            logger.warn("Could not load static attachment {}: {}", key, ex.getMessage());
+        }
+    }
+}
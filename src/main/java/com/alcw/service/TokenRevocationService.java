@@ -0,0 +1,99 @@
+package com.alcw.service;
+
+import com.alcw.model.RevokedToken;
+import com.alcw.repository.RevokedTokenRepository;
+import com.alcw.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Denylist of logged-out tokens keyed by their jti. The per-request check is a Bloom filter
+ * probe, and only a possible hit consults the exact set. Entries are dropped once the token
+ * has expired. When persistence is enabled they are also written to Mongo and reloaded at
+ * startup.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    // jti -> expiry in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile BloomFilter bloomFilter;
+
+    @Value("${security.revocation.expected-entries:10000}")
+    private int expectedEntries;
+
+    @Value("${security.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${security.revocation.persist:true}")
+    private boolean persist;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository) {
+        this.revokedTokenRepository = revokedTokenRepository;
+    }
+
+    @PostConstruct
+    public void init() {
+        bloomFilter = new BloomFilter(expectedEntries, falsePositiveRate);
+        if (!persist) {
+            return;
+        }
+        try {
+            for (RevokedToken token : revokedTokenRepository.findByExpiresAtAfter(new Date())) {
+                remember(token.getJti(), token.getExpiresAt().getTime());
+            }
+            logger.info("Loaded {} revoked tokens", revoked.size());
+        } catch (Exception ex) {
+            logger.warn("Could not load revoked tokens: {}", ex.getMessage());
+        }
+    }
+
+    public void revoke(String jti, Date expiresAt) {
+        if (jti == null || expiresAt == null || expiresAt.getTime() <= System.currentTimeMillis()) {
+            return;
+        }
+        remember(jti, expiresAt.getTime());
+        if (persist) {
+            revokedTokenRepository.save(new RevokedToken(jti, expiresAt));
+        }
+    }
+
+    public boolean isRevoked(String jti) {
+        if (jti == null || !bloomFilter.mightContain(jti)) {
+            return false;
+        }
+        return revoked.containsKey(jti);
+    }
+
+    // Bloom filters cannot delete, so expired entries are purged by rebuilding the filter
+    @Scheduled(fixedDelayString = "${security.revocation.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (writeLock) {
+            revoked.values().removeIf(expiry -> expiry <= now);
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size()), falsePositiveRate);
+            revoked.keySet().forEach(rebuilt::put);
+            bloomFilter = rebuilt;
+        }
+    }
+
+    private void remember(String jti, long expiry) {
+        synchronized (writeLock) {
+            revoked.put(jti, expiry);
+            bloomFilter.put(jti);
+        }
+    }
+}
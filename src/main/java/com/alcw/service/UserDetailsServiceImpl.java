@@ -16,14 +16,21 @@ import java.util.Optional;
 public class UserDetailsServiceImpl implements UserDetailsService {
     private final UserRepository userRepository;
     private final AdminRepository adminRepository;
+    private final PrincipalCache principalCache;
 
-    public UserDetailsServiceImpl(UserRepository userRepository, AdminRepository adminRepository) {
+    public UserDetailsServiceImpl(UserRepository userRepository, AdminRepository adminRepository,
+                                  PrincipalCache principalCache) {
         this.userRepository = userRepository;
         this.adminRepository = adminRepository;
+        this.principalCache = principalCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
+        return principalCache.get(usernameOrEmail, this::loadFromDatabase);
+    }
+
+    private UserDetails loadFromDatabase(String usernameOrEmail) {
         // First try to find a regular user by email
         Optional<User> user = userRepository.findByEmail(usernameOrEmail);
         if (user.isPresent()) {
@@ -42,4 +49,3 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         throw new UsernameNotFoundException("User not found with identifier: " + usernameOrEmail);
     }
 }
-
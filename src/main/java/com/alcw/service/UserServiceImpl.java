@@ -7,26 +7,41 @@ import com.alcw.dto.UpdateProfileDTO;
 import com.alcw.dto.UserDTO;
 import com.alcw.exception.DuplicateEmailException;
 import com.alcw.exception.InvalidCredentialsException;
+import com.alcw.model.PendingRegistration;
 import com.alcw.model.User;
+import com.alcw.repository.RefreshTokenRepository;
 import com.alcw.repository.UserRepository;
-import com.cloudinary.Cloudinary;
-import com.cloudinary.utils.ObjectUtils;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
+    private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final OTPService otpService;
     private final EmailService emailService;
-    private final Cloudinary cloudinary;
+    private final CloudinaryService cloudinaryService;
+    private final ImageProcessingService imageProcessingService;
+    private final DirectUploadService directUploadService;
     private final SequenceGeneratorService sequenceGeneratorService;
+    private final PrincipalCache principalCache;
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    // email -> OTP send currently in progress
+    private final Map<String, CompletableFuture<String>> otpSendsInFlight = new ConcurrentHashMap<>();
 
     @Override
     public String registerUser(UserDTO userDTO) {
@@ -40,15 +55,25 @@ public class UserServiceImpl implements UserService {
             );
         }
 
-        // Don't save user to database yet, just generate and send OTP
-        String otp = otpService.generateOTP(userDTO.getEmail());
-
-        // Store user data temporarily in OTP service for verification
-        otpService.storeUserData(userDTO.getEmail(), userDTO);
-
-        emailService.sendOTPEmail(userDTO.getEmail(), userDTO.getName(), otp);
+        // Don't save user to database yet; a double-submitted form shares one send
+        return coalesceOtpSend(userDTO.getEmail(), () -> {
+            // During the cooldown nothing is hashed or stored, so the pending registration the
+            // outstanding code will activate cannot be replaced
+            OTPService.Issue issue = otpService.generateOTP(userDTO.getEmail());
+            if (!issue.isFresh()) {
+                return cooldownMessage(issue);
+            }
 
-        return "OTP has been sent to your email for verification";
+            // Keep the registration until the OTP is verified; only the hash is retained
+            PendingRegistration registration = new PendingRegistration();
+            registration.setEmail(userDTO.getEmail());
+            registration.setName(userDTO.getName());
+            registration.setOccupation(userDTO.getOccupation());
+            registration.setPasswordHash(passwordEncoder.encode(userDTO.getPassword()));
+            otpService.storePendingRegistration(registration);
+            emailService.sendOTPEmail(userDTO.getEmail(), userDTO.getName(), issue.getCode());
+            return "OTP has been sent to your email for verification";
+        });
     }
 
     @Override
@@ -69,18 +94,18 @@ public class UserServiceImpl implements UserService {
         otpService.validateOTP(email, otp);
 
         // If OTP is valid, then get user data and create the user
-        UserDTO userDTO = otpService.getUserData(email);
+        PendingRegistration registration = otpService.getPendingRegistration(email);
 
-        if (userDTO == null) {
+        if (registration == null) {
             throw new InvalidCredentialsException("User data not found. Please register again.");
         }
 
         // Create and save the user
         User user = new User();
-        user.setName(userDTO.getName());
-        user.setEmail(userDTO.getEmail());
-        user.setPassword(passwordEncoder.encode(userDTO.getPassword()));
-        user.setOccupation(userDTO.getOccupation());
+        user.setName(registration.getName());
+        user.setEmail(registration.getEmail());
+        user.setPassword(registration.getPasswordHash());
+        user.setOccupation(registration.getOccupation());
         user.setVerified(true);
 
         // Generate membership ID
@@ -89,9 +114,10 @@ public class UserServiceImpl implements UserService {
         user.setMembershipId(membershipId);
 
         User savedUser = userRepository.save(user);
+        principalCache.invalidate(savedUser.getEmail());
 
         // Clear the temporary user data
-        otpService.clearUserData(email);
+        otpService.clearPendingRegistration(email);
 
         emailService.sendWelcomeEmail(savedUser);
 
@@ -106,16 +132,55 @@ public class UserServiceImpl implements UserService {
         }
 
         // Get stored user data
-        UserDTO userDTO = otpService.getUserData(email);
-        if (userDTO == null) {
+        PendingRegistration registration = otpService.getPendingRegistration(email);
+        if (registration == null) {
             throw new InvalidCredentialsException("No registration found for this email. Please register first.");
         }
 
-        // Generate and send new OTP
-        String otp = otpService.generateOTP(email);
-        emailService.sendOTPEmail(email, userDTO.getName(), otp);
+        // Generate and send new OTP unless the last one is still in its cooldown window
+        return coalesceOtpSend(email, () -> {
+            OTPService.Issue issue = otpService.generateOTP(email);
+            if (!issue.isFresh()) {
+                return cooldownMessage(issue);
+            }
+            // the registration lives as long as the new code
+            otpService.storePendingRegistration(registration);
+            emailService.sendOTPEmail(email, registration.getName(), issue.getCode());
+            return "New OTP has been sent to your email";
+        });
+    }
 
-        return "New OTP has been sent to your email";
+    // Concurrent requests for the same address wait for the one already running instead of
+    // issuing their own code and email
+    private String coalesceOtpSend(String email, Supplier<String> send) {
+        CompletableFuture<String> own = new CompletableFuture<>();
+        CompletableFuture<String> running = otpSendsInFlight.putIfAbsent(email, own);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+
+        try {
+            String message = send.get();
+            own.complete(message);
+            return message;
+        } catch (RuntimeException ex) {
+            own.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            otpSendsInFlight.remove(email, own);
+        }
+    }
+
+    private static String cooldownMessage(OTPService.Issue issue) {
+        return "An OTP was already sent to your email and is valid for another "
+                + issue.getRemainingSeconds() + " seconds";
     }
 
     @Override
@@ -131,6 +196,7 @@ public class UserServiceImpl implements UserService {
             throw new InvalidCredentialsException("Account not verified. Please verify your email first.");
         }
 
+        rehashIfNeeded(user, password);
         return user;
     }
 
@@ -147,16 +213,33 @@ public class UserServiceImpl implements UserService {
             throw new InvalidCredentialsException("Account not verified");
         }
 
+        rehashIfNeeded(user, password);
         return user;
     }
 
+    // Re-encode at the configured BCrypt cost while the raw password is at hand
+    private void rehashIfNeeded(User user, String rawPassword) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return;
+        }
+        try {
+            user.setPassword(passwordEncoder.encode(rawPassword));
+            userRepository.save(user);
+            principalCache.invalidate(user.getEmail());
+        } catch (RuntimeException ex) {
+            // the login itself already succeeded; try again next time
+            logger.warn("Could not rehash password for {}: {}", user.getEmail(), ex.getMessage());
+        }
+    }
+
     @Override
     public User updateProfile(String email, UpdateProfileDTO updateDto, MultipartFile image) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new InvalidCredentialsException("User not found"));
 
         // Validate password if present - use the existing isPasswordValid method
-        if (updateDto.getPassword() != null && !updateDto.getPassword().isEmpty()) {
+        boolean passwordChanged = updateDto.getPassword() != null && !updateDto.getPassword().isEmpty();
+        if (passwordChanged) {
             if (!isPasswordValid(updateDto.getPassword())) {
                 throw new InvalidCredentialsException(
                         "Password must contain 8+ characters, 1 uppercase, and 1 special character");
@@ -174,18 +257,37 @@ public class UserServiceImpl implements UserService {
         }
 
         // Handle image upload
+        String imageReference = null;
         if (image != null && !image.isEmpty()) {
-            try {
-                Map<?, ?> uploadResult = cloudinary.uploader().upload(
-                        image.getBytes(),
-                        ObjectUtils.asMap("folder", "alc_profiles")
-                );
-                user.setProfileImageUrl((String) uploadResult.get("secure_url"));
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to upload image", e);
-            }
+            // avatars are shown small, so upload a downscaled copy; images ImageIO cannot decode
+            // are downscaled and stripped by Cloudinary on the way in instead
+            byte[] processed = imageProcessingService.toBoundedJpeg(image);
+            user.setProfileImageUrl(processed != null
+                    ? cloudinaryService.uploadImage(processed, "alc_profiles")
+                    : cloudinaryService.uploadImage(image, "alc_profiles",
+                            imageProcessingService.getMaxDimension()));
+        } else if (updateDto.getImageReference() != null && !updateDto.getImageReference().isBlank()) {
+            imageReference = updateDto.getImageReference();
+            user.setProfileImageUrl(directUploadService.verify(DirectUploadService.Target.PROFILE,
+                    imageReference, "image", email));
         }
 
-        return userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (RuntimeException ex) {
+            if (imageReference != null) {
+                directUploadService.release(DirectUploadService.Target.PROFILE, imageReference, email);
+            }
+            throw ex;
+        }
+        if (imageReference != null) {
+            directUploadService.consume(DirectUploadService.Target.PROFILE, imageReference, email);
+        }
+        principalCache.invalidate(savedUser.getEmail());
+        if (passwordChanged) {
+            refreshTokenRepository.deleteByUsername(savedUser.getUsername());
+        }
+        return savedUser;
     }
 }
@@ -0,0 +1,36 @@
+package com.alcw.util;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Caffeine {@link Expiry} that evicts each entry at a deadline carried by the value itself,
+ * such as a token's or a registration's expiry. Reads do not extend it.
+ */
+public final class CacheExpiry {
+
+    private CacheExpiry() {
+    }
+
+    public static <K, V> Expiry<K, V> atDeadline(ToLongFunction<V> deadlineEpochMillis) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(K key, V value, long currentTime) {
+                long remaining = deadlineEpochMillis.applyAsLong(value) - System.currentTimeMillis();
+                return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remaining));
+            }
+
+            @Override
+            public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
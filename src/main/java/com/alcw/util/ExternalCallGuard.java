@@ -0,0 +1,47 @@
+package com.alcw.util;
+
+import com.alcw.exception.ServiceUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Wraps calls to third-party APIs in a per-dependency bulkhead and circuit breaker
+ * (configured under {@code resilience4j.*}). The bulkhead sits outside the breaker, so
+ * calls turned away for lack of capacity do not count as provider failures. Rejected and
+ * short-circuited calls surface as {@link ServiceUnavailableException} (HTTP 503).
+ * Per-call timeouts are set on each provider's HTTP client.
+ */
+@Component
+public class ExternalCallGuard {
+
+    public static final String BREVO = "brevo";
+    public static final String CLOUDINARY = "cloudinary";
+    public static final String GOOGLE_SHEETS = "google-sheets";
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public ExternalCallGuard(CircuitBreakerRegistry circuitBreakerRegistry, BulkheadRegistry bulkheadRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    public <T> T call(String dependency, Callable<T> call) throws Exception {
+        Callable<T> guarded = Bulkhead.decorateCallable(bulkheadRegistry.bulkhead(dependency),
+                CircuitBreaker.decorateCallable(circuitBreakerRegistry.circuitBreaker(dependency), call));
+        try {
+            return guarded.call();
+        } catch (BulkheadFullException ex) {
+            throw new ServiceUnavailableException("Too many requests to " + dependency + ", please try again shortly");
+        } catch (CallNotPermittedException ex) {
+            throw new ServiceUnavailableException(dependency + " is temporarily unavailable, please try again later");
+        }
+    }
+}
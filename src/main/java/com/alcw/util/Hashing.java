@@ -0,0 +1,40 @@
+package com.alcw.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 helpers for lookup keys (token digests, upload content hashes). Not for
+ * passwords, which go through the BCrypt encoder.
+ */
+public final class Hashing {
+
+    private Hashing() {
+    }
+
+    // A fresh digest, for callers that feed it incrementally, e.g. through a DigestInputStream
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    // Completes an incrementally fed digest and returns it as lowercase hex
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static String sha256Hex(byte[] input) {
+        MessageDigest digest = sha256();
+        digest.update(input);
+        return hex(digest);
+    }
+
+    public static String sha256Hex(String input) {
+        return sha256Hex(input.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -2,27 +2,66 @@ package com.alcw.util;
 
 
 
+import com.alcw.config.SecurityConfig;
+import com.alcw.service.TokenRevocationService;
+import com.alcw.service.UserDetailsImpl;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
     private final JwtUtil jwtUtil;
+    private final VerifiedTokenCache verifiedTokenCache;
     private final UserDetailsService userDetailsService;
+    private final TokenRevocationService tokenRevocationService;
+
+    // When enabled, the principal is built from signed token claims instead of a database lookup
+    @Value("${jwt.stateless-claims.enabled:false}")
+    private boolean statelessClaims;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, VerifiedTokenCache verifiedTokenCache,
+                                   UserDetailsService userDetailsService,
+                                   TokenRevocationService tokenRevocationService) {
         this.jwtUtil = jwtUtil;
+        this.verifiedTokenCache = verifiedTokenCache;
         this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = URL_PATH_HELPER.getPathWithinApplication(request);
+        // Blog writes are meant to be ADMIN-only, so they keep the token check
+        if (path.startsWith("/api/blogs") && !HttpMethod.GET.matches(request.getMethod())) {
+            return false;
+        }
+        for (String pattern : SecurityConfig.PUBLIC_PATHS) {
+            if (PATH_MATCHER.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -30,18 +69,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        JwtUtil.ParsedToken token = null;
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
-            username = jwtUtil.extractUsername(jwt);
+            // Signature and expiry are verified once per distinct token, then served from the cache
+            String jwt = authorizationHeader.substring(7);
+            token = verifiedTokenCache.verify(jwt);
+            if (tokenRevocationService.isRevoked(token.getClaims().getId())) {
+                // logged out: continue unauthenticated
+                verifiedTokenCache.invalidate(jwt);
+                token = null;
+            }
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (token != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UserDetails userDetails = statelessClaims ? principalFromClaims(token) : null;
+            if (userDetails == null) {
+                // Legacy tokens without role claims still fall back to the database
+                userDetails = this.userDetailsService.loadUserByUsername(token.getSubject());
+            }
 
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (jwtUtil.validateToken(token, userDetails)) {
                 UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -50,5 +98,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
-}
 
+    private UserDetails principalFromClaims(JwtUtil.ParsedToken token) {
+        Object roles = token.getClaims().get(JwtUtil.CLAIM_ROLES);
+        Boolean verified = token.getClaims().get(JwtUtil.CLAIM_VERIFIED, Boolean.class);
+        if (!(roles instanceof List<?> roleList) || !Boolean.TRUE.equals(verified)) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = new ArrayList<>(roleList.size());
+        for (Object role : roleList) {
+            authorities.add(new SimpleGrantedAuthority(String.valueOf(role)));
+        }
+        return new UserDetailsImpl(
+                token.getClaims().get(JwtUtil.CLAIM_USER_ID, String.class),
+                token.getSubject(),
+                null,
+                authorities);
+    }
+}
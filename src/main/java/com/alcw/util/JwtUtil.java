@@ -1,41 +1,138 @@
 package com.alcw.util;
 
 
+import com.alcw.model.Admin;
+import com.alcw.model.User;
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.io.Decoders;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
 public class JwtUtil {
+    // Signed claims that let the filter build the principal without a database read
+    public static final String CLAIM_ROLES = "roles";
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_MEMBERSHIP_ID = "membershipId";
+    public static final String CLAIM_VERIFIED = "verified";
+
     @Value("${jwt.secret}")
     private String secret;
 
+    // kid written into new tokens' headers, identifying jwt.secret
+    @Value("${jwt.key-id:primary}")
+    private String keyId;
+
+    // Retired keys still accepted for verification, as comma-separated kid:base64secret pairs
+    @Value("${jwt.previous-secrets:}")
+    private String previousSecrets;
+
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    // Derived once at startup; JwtParser is immutable and thread-safe
+    private Key signingKey;
+    private Map<String, Key> verificationKeys;
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        signingKey = hmacKey(secret);
+
+        Map<String, Key> keys = new HashMap<>();
+        keys.put(keyId, signingKey);
+        if (previousSecrets != null && !previousSecrets.isBlank()) {
+            for (String entry : previousSecrets.split(",")) {
+                int separator = entry.indexOf(':');
+                if (separator <= 0) {
+                    throw new IllegalStateException("jwt.previous-secrets entries must be kid:secret");
+                }
+                keys.putIfAbsent(entry.substring(0, separator).trim(), hmacKey(entry.substring(separator + 1).trim()));
+            }
+        }
+        verificationKeys = Map.copyOf(keys);
+
+        parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        String kid = header.getKeyId();
+                        if (kid == null) {
+                            // issued before key ids were introduced
+                            return signingKey;
+                        }
+                        Key key = verificationKeys.get(kid);
+                        if (key == null) {
+                            throw new JwtException("Unknown signing key id: " + kid);
+                        }
+                        return key;
+                    }
+                })
+                .build();
+    }
+
+    // Same derivation as the former signWith(HS256, secret): the property holds base64 key bytes
+    private static Key hmacKey(String base64Secret) {
+        return new SecretKeySpec(Decoders.BASE64.decode(base64Secret), SignatureAlgorithm.HS256.getJcaName());
+    }
+
     public String generateToken(UserDetails userDetails) {
         Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM_ROLES, userDetails.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList()));
+        claims.put(CLAIM_VERIFIED, userDetails.isEnabled());
+        if (userDetails instanceof User user) {
+            claims.put(CLAIM_USER_ID, user.getId());
+            claims.put(CLAIM_MEMBERSHIP_ID, user.getMembershipId());
+        } else if (userDetails instanceof Admin admin) {
+            claims.put(CLAIM_USER_ID, admin.getId());
+        }
         return createToken(claims, userDetails.getUsername());
     }
 
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, keyId)
                 .setClaims(claims)
                 .setSubject(subject)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(SignatureAlgorithm.HS256, secret)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(parseToken(token), userDetails);
+    }
+
+    public Boolean validateToken(ParsedToken token, UserDetails userDetails) {
+        return token.getSubject().equals(userDetails.getUsername()) && !token.isExpired();
+    }
+
+    /**
+     * Verifies the signature and expiry of the token and returns subject, expiry and claims
+     * from a single parse. Throws a {@link JwtException} if the token is not valid.
+     */
+    public ParsedToken parseToken(String token) {
+        Claims claims = extractAllClaims(token);
+        if (claims.getSubject() == null || claims.getExpiration() == null) {
+            throw new MalformedJwtException("Token is missing subject or expiration");
+        }
+        return new ParsedToken(claims.getSubject(), claims.getExpiration(), claims);
     }
 
     public String extractUsername(String token) {
@@ -52,10 +149,27 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    // Result of a successful signature/expiry check
+    public static class ParsedToken {
+        private final String subject;
+        private final Date expiration;
+        private final Claims claims;
+
+        public ParsedToken(String subject, Date expiration, Claims claims) {
+            this.subject = subject;
+            this.expiration = expiration;
+            this.claims = claims;
+        }
+
+        public String getSubject() { return subject; }
+        public Date getExpiration() { return expiration; }
+        public Claims getClaims() { return claims; }
+
+        public boolean isExpired() {
+            return expiration.getTime() <= System.currentTimeMillis();
+        }
     }
 }
@@ -0,0 +1,120 @@
+package com.alcw.util;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpHead;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Fetches public files (contact-form uploads, attachment URLs) through the pooled HTTP
+ * client. Bodies are streamed and cut off at a size limit, so an unexpectedly large file
+ * cannot be buffered in full.
+ */
+@Component
+public class UrlFetcher {
+
+    private final CloseableHttpClient httpClient;
+    private final long defaultMaxBytes;
+
+    public UrlFetcher(CloseableHttpClient httpClient,
+                      @Value("${http.client.max-download-bytes:26214400}") long defaultMaxBytes) {
+        this.httpClient = httpClient;
+        this.defaultMaxBytes = defaultMaxBytes;
+    }
+
+    public record UrlInfo(String contentType, long contentLength) {
+    }
+
+    // Content type without parameters and length (-1 when unknown) from a HEAD request
+    public UrlInfo head(String url) throws IOException {
+        return httpClient.execute(new HttpHead(url), response -> {
+            checkStatus(url, response);
+            String contentType = headerValue(response, HttpHeaders.CONTENT_TYPE);
+            if (contentType != null) {
+                // e.g., "application/pdf; charset=UTF-8" -> take first part
+                int idx = contentType.indexOf(';');
+                if (idx > 0) contentType = contentType.substring(0, idx).trim();
+            }
+            String length = headerValue(response, HttpHeaders.CONTENT_LENGTH);
+            long contentLength = -1;
+            if (length != null) {
+                try {
+                    contentLength = Long.parseLong(length.trim());
+                } catch (NumberFormatException ignored) {
+                    // leave unknown
+                }
+            }
+            return new UrlInfo(contentType, contentLength);
+        });
+    }
+
+    public byte[] fetch(String url) throws IOException {
+        return fetch(url, defaultMaxBytes);
+    }
+
+    /**
+     * Downloads the body, or returns null when it is larger than {@code maxBytes}. An
+     * oversized response is abandoned and its connection discarded rather than drained.
+     */
+    public byte[] fetch(String url, long maxBytes) throws IOException {
+        int limit = (int) Math.min(Integer.MAX_VALUE - 8, maxBytes);
+        HttpGet request = new HttpGet(url);
+        ClassicHttpResponse response = httpClient.executeOpen(null, request, null);
+        boolean abandoned = false;
+        try {
+            checkStatus(url, response);
+            HttpEntity entity = response.getEntity();
+            if (entity == null) {
+                return new byte[0];
+            }
+            if (entity.getContentLength() > limit) {
+                abandoned = abandon(request);
+                return null;
+            }
+            InputStream in = entity.getContent();
+            byte[] bytes = in.readNBytes(limit + 1);
+            if (bytes.length > limit) {
+                // cancel before anything closes the stream, since closing it reads the body to EOF
+                abandoned = abandon(request);
+                return null;
+            }
+            in.close();
+            return bytes;
+        } finally {
+            try {
+                response.close();
+            } catch (IOException e) {
+                // a discarded connection may fail to close cleanly; that is expected
+                if (!abandoned) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Drops the pooled connection outright instead of reading the rest of the body
+    private static boolean abandon(HttpGet request) {
+        request.cancel();
+        return true;
+    }
+
+    private static void checkStatus(String url, ClassicHttpResponse response) throws IOException {
+        int code = response.getCode();
+        if (code < 200 || code >= 300) {
+            throw new IOException(url + " returned status " + code);
+        }
+    }
+
+    private static String headerValue(ClassicHttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+}
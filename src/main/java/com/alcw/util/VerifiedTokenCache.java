@@ -0,0 +1,56 @@
+package com.alcw.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of tokens whose signature has already been verified, so repeated requests
+ * with the same bearer token skip the HMAC check and claim parsing. Entries are keyed by a
+ * SHA-256 digest of the token and evicted at the token's own expiry.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private final JwtUtil jwtUtil;
+    private final Cache<String, JwtUtil.ParsedToken> cache;
+
+    public VerifiedTokenCache(JwtUtil jwtUtil,
+                              MeterRegistry meterRegistry,
+                              @Value("${jwt.cache.max-size:10000}") long maxSize) {
+        this.jwtUtil = jwtUtil;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(CacheExpiry.<String, JwtUtil.ParsedToken>atDeadline(
+                        token -> token.getExpiration().getTime()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.verified-tokens");
+    }
+
+    /**
+     * Returns the verified token, parsing it only on a cache miss. Invalid tokens are never
+     * cached and the {@link io.jsonwebtoken.JwtException} from the parser is propagated.
+     */
+    public JwtUtil.ParsedToken verify(String token) {
+        JwtUtil.ParsedToken parsed = cache.get(digest(token), key -> jwtUtil.parseToken(token));
+        if (parsed.isExpired()) {
+            // expiry eviction is not exact, never hand out a token past its exp
+            invalidate(token);
+            throw new ExpiredJwtException(null, parsed.getClaims(), "JWT expired");
+        }
+        return parsed;
+    }
+
+    public void invalidate(String token) {
+        cache.invalidate(digest(token));
+    }
+
+    private static String digest(String token) {
+        return Hashing.sha256Hex(token);
+    }
+}
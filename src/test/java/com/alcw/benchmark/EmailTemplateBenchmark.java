@@ -0,0 +1,79 @@
+package com.alcw.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Render time of each email template with the template cache on and off. Add
+ * {@code -prof gc} to the runner options to see allocation per render.
+ * Run {@link #main(String[])} after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EmailTemplateBenchmark {
+
+    @Param({"otp-email", "welcome-email", "contact-user-email", "contact-admin-email", "password-reset-email"})
+    public String template;
+
+    @Param({"true", "false"})
+    public boolean cacheable;
+
+    private TemplateEngine templateEngine;
+    private Context context;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(cacheable);
+
+        templateEngine = new TemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+
+        context = new Context();
+        context.setVariable("name", "Bench User");
+        context.setVariable("email", "bench@artlawcommunion.org");
+        context.setVariable("otp", "123456");
+        context.setVariable("membershipId", "ALCWB0001");
+        context.setVariable("subject", "FEEDBACK");
+        context.setVariable("message", "A short message from the contact form.");
+        context.setVariable("fileUrl", "https://res.cloudinary.com/demo/raw/upload/sample.pdf");
+        context.setVariable("resetLink", "https://deb2025.github.io/password_reset_page/?token=bench");
+    }
+
+    @Benchmark
+    public String render() {
+        return templateEngine.process(template, context);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EmailTemplateBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
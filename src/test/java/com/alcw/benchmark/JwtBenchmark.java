@@ -0,0 +1,93 @@
+package com.alcw.benchmark;
+
+import com.alcw.model.Admin;
+import com.alcw.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign/verify throughput of {@link JwtUtil} against the previous per-call approach, which
+ * re-derived the key from the secret string and built a new parser for every token.
+ * Run {@link #main(String[])} after {@code mvn test-compile}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+public class JwtBenchmark {
+
+    // 256-bit test key, base64 encoded like the real jwt.secret
+    private static final String SECRET = "q4V0Yb0cJm3ZC1mR9b6tW2xJ8pQ5sN7eL3kH1gF0dA4=";
+
+    private JwtUtil jwtUtil;
+    private Admin principal;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "keyId", "primary");
+        ReflectionTestUtils.setField(jwtUtil, "previousSecrets", "");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 900_000L);
+        jwtUtil.init();
+
+        principal = new Admin();
+        principal.setId("bench-admin");
+        principal.setUsername("bench@artlawcommunion.org");
+        token = jwtUtil.generateToken(principal);
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtUtil.generateToken(principal);
+    }
+
+    @Benchmark
+    public JwtUtil.ParsedToken verify() {
+        return jwtUtil.parseToken(token);
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public String legacySign() {
+        return Jwts.builder()
+                .setSubject(principal.getUsername())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 900_000L))
+                .signWith(SignatureAlgorithm.HS256, SECRET)
+                .compact();
+    }
+
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public Claims legacyVerify() {
+        return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
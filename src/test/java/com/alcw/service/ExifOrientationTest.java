@@ -0,0 +1,141 @@
+package com.alcw.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExifOrientationTest {
+
+	@Test
+	void readsBigEndianOrientation() {
+		assertEquals(6, ImageProcessingService.exifOrientation(jpeg(exifSegment(false, 6))));
+	}
+
+	@Test
+	void readsLittleEndianOrientation() {
+		assertEquals(8, ImageProcessingService.exifOrientation(jpeg(exifSegment(true, 8))));
+	}
+
+	@Test
+	void skipsNonExifApp1Segments() {
+		byte[] xmp = segment(0xE1, "http://ns.adobe.com/xap/1.0/\0".getBytes(StandardCharsets.US_ASCII));
+		assertEquals(3, ImageProcessingService.exifOrientation(jpeg(xmp, exifSegment(false, 3))));
+	}
+
+	@Test
+	void defaultsToUprightWithoutExif() {
+		assertEquals(1, ImageProcessingService.exifOrientation(new byte[0]));
+		assertEquals(1, ImageProcessingService.exifOrientation(new byte[] {(byte) 0x89, 'P', 'N', 'G'}));
+		assertEquals(1, ImageProcessingService.exifOrientation(jpeg(segment(0xE0, "JFIF\0".getBytes(StandardCharsets.US_ASCII)))));
+	}
+
+	@Test
+	void stopsAtStartOfScan() {
+		byte[] scan = {(byte) 0xFF, (byte) 0xDA, 0, 2};
+		assertEquals(1, ImageProcessingService.exifOrientation(jpeg(scan, exifSegment(false, 6))));
+	}
+
+	@Test
+	void toleratesTruncatedApp1Segment() {
+		byte[] full = jpeg(exifSegment(false, 6));
+		// only the trailing next-IFD offset may be missing for the entry to still be read
+		int entryEnd = full.length - 4;
+		for (int length = 0; length < full.length; length++) {
+			int expected = length >= entryEnd ? 6 : 1;
+			assertEquals(expected, ImageProcessingService.exifOrientation(Arrays.copyOf(full, length)), "length " + length);
+		}
+	}
+
+	@Test
+	void toleratesIfdOffsetBeyondSegment() {
+		byte[] exif = exifSegment(false, 6);
+		// IFD0 offset sits right after "Exif\0\0" and the TIFF byte order and magic
+		exif[4 + 6 + 4] = (byte) 0xFF;
+		exif[4 + 6 + 5] = (byte) 0xFF;
+		exif[4 + 6 + 6] = (byte) 0xFF;
+		exif[4 + 6 + 7] = (byte) 0xFF;
+		assertEquals(1, ImageProcessingService.exifOrientation(jpeg(exif)));
+	}
+
+	@Test
+	void toleratesEntryCountBeyondSegment() {
+		byte[] exif = exifSegment(false, 6);
+		// claim 0x7FFF entries with only one present, and move the orientation tag away
+		exif[4 + 6 + 8] = 0x7F;
+		exif[4 + 6 + 9] = (byte) 0xFF;
+		exif[4 + 6 + 10] = 0x01;
+		exif[4 + 6 + 11] = 0x00;
+		assertEquals(1, ImageProcessingService.exifOrientation(jpeg(exif)));
+	}
+
+	@Test
+	void readsWithinThePrefixWhenSegmentLengthExceedsIt() {
+		// only a prefix of the file is scanned, so a long APP1 is parsed as far as it was read
+		byte[] exif = exifSegment(false, 6);
+		exif[2] = (byte) 0xFF;
+		exif[3] = (byte) 0xFF;
+		assertEquals(6, ImageProcessingService.exifOrientation(jpeg(exif)));
+	}
+
+	private static byte[] jpeg(byte[]... segments) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(0xFF);
+		out.write(0xD8);
+		for (byte[] segment : segments) {
+			out.writeBytes(segment);
+		}
+		return out.toByteArray();
+	}
+
+	// APP1 with "Exif\0\0", a TIFF header and an IFD0 holding only the orientation tag
+	private static byte[] exifSegment(boolean littleEndian, int orientation) {
+		ByteArrayOutputStream tiff = new ByteArrayOutputStream();
+		tiff.writeBytes(littleEndian ? new byte[] {'I', 'I', 42, 0} : new byte[] {'M', 'M', 0, 42});
+		write32(tiff, 8, littleEndian);
+		write16(tiff, 1, littleEndian);
+		write16(tiff, 0x0112, littleEndian);
+		write16(tiff, 3, littleEndian);
+		write32(tiff, 1, littleEndian);
+		write16(tiff, orientation, littleEndian);
+		write16(tiff, 0, littleEndian);
+		write32(tiff, 0, littleEndian);
+
+		ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		payload.writeBytes("Exif\0\0".getBytes(StandardCharsets.US_ASCII));
+		payload.writeBytes(tiff.toByteArray());
+		return segment(0xE1, payload.toByteArray());
+	}
+
+	private static byte[] segment(int marker, byte[] payload) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(0xFF);
+		out.write(marker);
+		write16(out, payload.length + 2, false);
+		out.writeBytes(payload);
+		return out.toByteArray();
+	}
+
+	private static void write16(ByteArrayOutputStream out, int value, boolean littleEndian) {
+		if (littleEndian) {
+			out.write(value & 0xFF);
+			out.write((value >>> 8) & 0xFF);
+		} else {
+			out.write((value >>> 8) & 0xFF);
+			out.write(value & 0xFF);
+		}
+	}
+
+	private static void write32(ByteArrayOutputStream out, int value, boolean littleEndian) {
+		if (littleEndian) {
+			write16(out, value & 0xFFFF, true);
+			write16(out, value >>> 16, true);
+		} else {
+			write16(out, value >>> 16, false);
+			write16(out, value & 0xFFFF, false);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.alcw.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SlidingWindowCounterTest {
+
+	private static final long WINDOW = 1000;
+	private static final int LIMIT = 5;
+
+	@Test
+	void rejectsOnceTheLimitIsReachedWithinAWindow() {
+		LoginThrottleService.SlidingWindowCounter counter = new LoginThrottleService.SlidingWindowCounter(0);
+
+		for (int i = 0; i < LIMIT; i++) {
+			assertTrue(counter.tryAcquire(i, WINDOW, LIMIT));
+		}
+		assertFalse(counter.tryAcquire(10, WINDOW, LIMIT));
+		assertEquals(LIMIT, counter.estimate(10, WINDOW), 0.0001);
+	}
+
+	@Test
+	void previousWindowIsWeightedByOverlapAfterRollOver() {
+		LoginThrottleService.SlidingWindowCounter counter = new LoginThrottleService.SlidingWindowCounter(0);
+		for (int i = 0; i < LIMIT; i++) {
+			counter.tryAcquire(0, WINDOW, LIMIT);
+		}
+
+		// right at the boundary the whole previous window still counts
+		assertEquals(5.0, counter.estimate(WINDOW, WINDOW), 0.0001);
+		assertFalse(counter.tryAcquire(WINDOW, WINDOW, LIMIT));
+
+		// halfway through the next window only half of it does
+		assertEquals(2.5, counter.estimate(WINDOW + WINDOW / 2, WINDOW), 0.0001);
+		assertTrue(counter.tryAcquire(WINDOW + WINDOW / 2, WINDOW, LIMIT));
+		assertEquals(3.5, counter.estimate(WINDOW + WINDOW / 2, WINDOW), 0.0001);
+	}
+
+	@Test
+	void idleForTwoWindowsForgetsEverything() {
+		LoginThrottleService.SlidingWindowCounter counter = new LoginThrottleService.SlidingWindowCounter(0);
+		for (int i = 0; i < LIMIT; i++) {
+			counter.tryAcquire(0, WINDOW, LIMIT);
+		}
+
+		assertEquals(0.0, counter.estimate(2 * WINDOW + 1, WINDOW), 0.0001);
+		assertTrue(counter.tryAcquire(2 * WINDOW + 1, WINDOW, LIMIT));
+	}
+
+	@Test
+	void releaseGivesTheSlotBack() {
+		LoginThrottleService.SlidingWindowCounter counter = new LoginThrottleService.SlidingWindowCounter(0);
+		for (int i = 0; i < LIMIT; i++) {
+			counter.tryAcquire(0, WINDOW, LIMIT);
+		}
+
+		counter.release();
+
+		assertTrue(counter.tryAcquire(1, WINDOW, LIMIT));
+		assertFalse(counter.tryAcquire(1, WINDOW, LIMIT));
+	}
+
+	@Test
+	void releaseAfterRollOverComesOutOfThePreviousWindow() {
+		LoginThrottleService.SlidingWindowCounter counter = new LoginThrottleService.SlidingWindowCounter(0);
+		counter.tryAcquire(0, WINDOW, LIMIT);
+		counter.estimate(WINDOW, WINDOW);
+
+		counter.release();
+
+		assertEquals(0.0, counter.estimate(WINDOW, WINDOW), 0.0001);
+	}
+}
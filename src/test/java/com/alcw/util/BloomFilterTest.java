@@ -0,0 +1,61 @@
+package com.alcw.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+	@Test
+	void emptyFilterContainsNothing() {
+		BloomFilter filter = new BloomFilter(1000, 0.01);
+
+		assertFalse(filter.mightContain("jti-1"));
+		assertFalse(filter.mightContain(""));
+	}
+
+	@Test
+	void neverReportsAnInsertedKeyAsMissing() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		String[] keys = new String[10_000];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = UUID.randomUUID().toString();
+			filter.put(keys[i]);
+		}
+
+		for (String key : keys) {
+			assertTrue(filter.mightContain(key), key);
+		}
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTheConfiguredRate() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("inserted-" + i);
+		}
+
+		int falsePositives = 0;
+		int probes = 100_000;
+		for (int i = 0; i < probes; i++) {
+			if (filter.mightContain("absent-" + i)) {
+				falsePositives++;
+			}
+		}
+
+		double rate = (double) falsePositives / probes;
+		assertTrue(rate < 0.02, "false positive rate " + rate);
+	}
+
+	@Test
+	void keysDifferingInOneCharacterAreHashedApart() {
+		BloomFilter filter = new BloomFilter(100, 0.001);
+		filter.put("token-a");
+
+		assertTrue(filter.mightContain("token-a"));
+		assertFalse(filter.mightContain("token-b"));
+	}
+}